@@ -1,7 +1,10 @@
 import db.DataBaseConnection;
+import db.SchemaMigrations;
 import GUI.MainFrame;
+import services.ServiceRegistry;
 import utils.Config;
 import utils.Logger;
+import utils.TextureCache;
 
 import javax.swing.*;
 
@@ -10,9 +13,13 @@ public class DermAppointMain {
         // Initialize configuration
         Config.createConfigTemplate();
 
+        // Background tiles render while the database starts
+        TextureCache.prewarm();
+
         // Initialize database
         try {
             DataBaseConnection.initializeDatabase();
+            SchemaMigrations.apply();
 
             if (!DataBaseConnection.testConnection()) {
                 JOptionPane.showMessageDialog(null,
@@ -25,6 +32,12 @@ public class DermAppointMain {
             Logger.logError("Failed to initialize database", e);
         }
 
+        // One set of services for the whole session: archiver, change-log poller,
+        // slot holds and warm reference caches
+        ServiceRegistry services = new ServiceRegistry();
+        services.start();
+        services.warmUp();
+
         // Set skin-friendly look and feel
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -35,12 +48,13 @@ public class DermAppointMain {
 
         // Run the application
         SwingUtilities.invokeLater(() -> {
-            MainFrame mainFrame = new MainFrame();
+            MainFrame mainFrame = new MainFrame(services);
             mainFrame.setVisible(true);
             Logger.log("DermAppoint system started");
 
             // Add shutdown hook to close database connection
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                services.shutdown();
                 DataBaseConnection.closeConnection();
                 Logger.log("Application shutdown completed");
             }));
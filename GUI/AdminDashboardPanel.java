@@ -1,11 +1,14 @@
 package GUI;
 
 import models.Admin;
+import services.PatientDirectory;
 import services.UserService;
 import utils.ColorScheme;
 import utils.FontLoader;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 
@@ -15,6 +18,8 @@ import java.awt.*;
  */
 public class AdminDashboardPanel extends JPanel {
 
+    private static final int SEARCH_LIMIT = 50;
+
     private MainFrame mainFrame;
     private UserService userService;
     private Admin currentAdmin;
@@ -77,16 +82,59 @@ public class AdminDashboardPanel extends JPanel {
 
         mainContent.add(cardsPanel, BorderLayout.CENTER);
 
-        // Table placeholder for patients
-        String[][] data = {};
-        String[] columns = { "ID", "Name", "Email", "Status" };
-        JTable table = new JTable(new DefaultTableModel(data, columns));
+        mainContent.add(createPatientRecords(), BorderLayout.SOUTH);
+
+        add(mainContent, BorderLayout.CENTER);
+    }
+
+    // ---------------- PATIENT RECORDS ----------------
+    private JPanel createPatientRecords() {
+        PatientDirectory directory = mainFrame.getServices().getPatientDirectory();
+
+        String[] columns = { "ID", "Name", "Email", "Phone" };
+        DefaultTableModel model = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable table = new JTable(model);
+
+        JTextField searchField = new JTextField();
+        searchField.setFont(FontLoader.loadCustomFont(14, Font.PLAIN));
+        searchField.setToolTipText("Search patients by name, email or phone");
+
+        // The directory answers in well under a millisecond, so search on every keystroke
+        Runnable search = () -> {
+            model.setRowCount(0);
+            for (PatientDirectory.Entry p : directory.search(searchField.getText(), SEARCH_LIMIT)) {
+                model.addRow(new Object[] { p.getUserId(), p.getFullName(), p.getEmail(), p.getPhone() });
+            }
+        };
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { search.run(); }
+            public void removeUpdate(DocumentEvent e) { search.run(); }
+            public void changedUpdate(DocumentEvent e) { search.run(); }
+        });
+
+        JPanel searchBar = new JPanel(new BorderLayout(10, 0));
+        searchBar.setBackground(ColorScheme.BACKGROUND);
+        searchBar.setBorder(BorderFactory.createEmptyBorder(0, 0, 8, 0));
+        JLabel searchLabel = new JLabel("Search:");
+        searchLabel.setFont(FontLoader.loadCustomFont(14, Font.BOLD));
+        searchLabel.setForeground(ColorScheme.TEXT_DARK);
+        searchBar.add(searchLabel, BorderLayout.WEST);
+        searchBar.add(searchField, BorderLayout.CENTER);
+
         JScrollPane scrollPane = new JScrollPane(table);
-        scrollPane.setBorder(BorderFactory.createTitledBorder("Patient Records"));
         scrollPane.setPreferredSize(new Dimension(800, 300));
-        mainContent.add(scrollPane, BorderLayout.SOUTH);
 
-        add(mainContent, BorderLayout.CENTER);
+        JPanel records = new JPanel(new BorderLayout());
+        records.setBackground(ColorScheme.BACKGROUND);
+        records.setBorder(BorderFactory.createTitledBorder("Patient Records"));
+        records.add(searchBar, BorderLayout.NORTH);
+        records.add(scrollPane, BorderLayout.CENTER);
+        return records;
     }
 
     // ---------------- SIDEBAR ----------------
@@ -0,0 +1,160 @@
+package GUI;
+
+import models.Appointment;
+import services.AppointmentServiceDB;
+import services.ChangeLogPoller;
+import utils.Logger;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Live appointment changes for one open dashboard table.
+ *
+ * While subscribed, the IDs the {@link ChangeLogPoller} reports are collected,
+ * their current rows are read in the background, and both are handed to the
+ * table on the Event Dispatch Thread. IDs arriving during a read are batched
+ * into the next one. Deliveries for an earlier subscription are dropped.
+ */
+public class AppointmentFeed {
+
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private static final ExecutorService READER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "appointment-feed");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ChangeLogPoller poller;
+    private final AppointmentServiceDB appointmentService;
+
+    private Subscription subscription;
+    private long generation;
+
+    public AppointmentFeed(ChangeLogPoller poller, AppointmentServiceDB appointmentService) {
+        this.poller = poller;
+        this.appointmentService = appointmentService;
+    }
+
+    /**
+     * Start delivering changes, replacing any earlier subscription.
+     *
+     * @param onChanged the changed IDs and the rows of those still in the appointments table
+     * @param onMissed  changes were lost; reload the table
+     */
+    public void subscribe(BiConsumer<Set<String>, List<Appointment>> onChanged, Runnable onMissed) {
+        unsubscribe();
+        subscription = new Subscription(++generation, onChanged, onMissed);
+        poller.addAppointmentListener(subscription);
+    }
+
+    public void unsubscribe() {
+        generation++;
+        if (subscription != null) {
+            poller.removeAppointmentListener(subscription);
+            subscription = null;
+        }
+    }
+
+    private final class Subscription implements Consumer<Set<String>> {
+        private final long ticket;
+        private final BiConsumer<Set<String>, List<Appointment>> onChanged;
+        private final Runnable onMissed;
+
+        // Filled on the poller thread, drained on the reader
+        private final Set<String> pending = new LinkedHashSet<>();
+        private boolean reading;
+        private boolean missed;
+
+        Subscription(long ticket, BiConsumer<Set<String>, List<Appointment>> onChanged, Runnable onMissed) {
+            this.ticket = ticket;
+            this.onChanged = onChanged;
+            this.onMissed = onMissed;
+        }
+
+        @Override
+        public void accept(Set<String> ids) {
+            synchronized (this) {
+                if (ids == null) {
+                    missed = true;
+                } else {
+                    pending.addAll(ids);
+                }
+                if (reading) {
+                    return;
+                }
+                reading = true;
+            }
+            READER.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                Set<String> ids;
+                boolean reload;
+                synchronized (this) {
+                    if (pending.isEmpty() && !missed) {
+                        reading = false;
+                        return;
+                    }
+                    ids = new LinkedHashSet<>(pending);
+                    reload = missed;
+                    pending.clear();
+                    missed = false;
+                }
+
+                if (reload) {
+                    deliver(ticket, onMissed);
+                    continue;
+                }
+                List<Appointment> rows = read(ids);
+                if (rows == null) {
+                    Logger.log("Could not read " + ids.size() + " changed appointments; reloading instead");
+                    deliver(ticket, onMissed);
+                } else {
+                    deliver(ticket, () -> onChanged.accept(ids, rows));
+                }
+            }
+        }
+    }
+
+    private List<Appointment> read(Set<String> ids) {
+        List<Appointment> rows = new ArrayList<>();
+        List<String> chunk = new ArrayList<>(Math.min(ids.size(), MAX_IDS_PER_QUERY));
+        for (String id : ids) {
+            chunk.add(id);
+            if (chunk.size() == MAX_IDS_PER_QUERY) {
+                List<Appointment> part = appointmentService.findByIds(chunk);
+                if (part == null) {
+                    return null;
+                }
+                rows.addAll(part);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            List<Appointment> part = appointmentService.findByIds(chunk);
+            if (part == null) {
+                return null;
+            }
+            rows.addAll(part);
+        }
+        return rows;
+    }
+
+    private void deliver(long ticket, Runnable update) {
+        SwingUtilities.invokeLater(() -> {
+            if (ticket == generation) {
+                update.run();
+            }
+        });
+    }
+}
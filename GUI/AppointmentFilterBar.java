@@ -0,0 +1,90 @@
+package GUI;
+
+import models.AppointmentStatus;
+import utils.ColorScheme;
+
+import javax.swing.*;
+import java.awt.*;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Objects;
+
+/**
+ * Status, doctor and "upcoming only" pickers driving an {@link AppointmentRowSorter}
+ */
+public class AppointmentFilterBar extends JPanel {
+
+    private static final String ALL_STATUSES = "All statuses";
+    private static final String ALL_DOCTORS = "All doctors";
+
+    private final AppointmentRowSorter sorter;
+    private final JComboBox<Object> statusCombo = new JComboBox<>();
+    private final JComboBox<String> doctorCombo = new JComboBox<>();
+    private final JCheckBox upcomingBox = new JCheckBox("Upcoming only");
+    private boolean updatingDoctors;
+
+    public AppointmentFilterBar(AppointmentRowSorter sorter, boolean withDoctor) {
+        super(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        this.sorter = sorter;
+        setOpaque(false);
+
+        statusCombo.addItem(ALL_STATUSES);
+        for (AppointmentStatus status : AppointmentStatus.values()) {
+            statusCombo.addItem(status);
+        }
+        statusCombo.addActionListener(e -> {
+            Object selected = statusCombo.getSelectedItem();
+            sorter.setStatusFilter(selected instanceof AppointmentStatus
+                    ? EnumSet.of((AppointmentStatus) selected) : null);
+        });
+
+        upcomingBox.setOpaque(false);
+        upcomingBox.setForeground(ColorScheme.TEXT_DARK);
+        upcomingBox.addActionListener(e -> sorter.setDateFilter(upcomingBox.isSelected() ? LocalDate.now() : null, null));
+
+        add(new JLabel("Status:"));
+        add(statusCombo);
+
+        if (withDoctor) {
+            doctorCombo.setRenderer(new DefaultListCellRenderer() {
+                @Override
+                public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                              boolean isSelected, boolean cellHasFocus) {
+                    Object shown = value == null ? ALL_DOCTORS : sorter.getModel().getDoctorName((String) value);
+                    return super.getListCellRendererComponent(list, shown, index, isSelected, cellHasFocus);
+                }
+            });
+            doctorCombo.addItem(null);
+            doctorCombo.addActionListener(e -> {
+                if (!updatingDoctors) {
+                    sorter.setDoctorFilter((String) doctorCombo.getSelectedItem());
+                }
+            });
+            add(new JLabel("Doctor:"));
+            add(doctorCombo);
+        }
+
+        add(upcomingBox);
+    }
+
+    /**
+     * Refill the doctor picker from the rows now loaded, keeping the current choice if still present
+     */
+    public void refreshDoctors() {
+        String selected = (String) doctorCombo.getSelectedItem();
+        updatingDoctors = true;
+        try {
+            doctorCombo.removeAllItems();
+            doctorCombo.addItem(null);
+            for (String doctorId : sorter.getDoctorIds()) {
+                doctorCombo.addItem(doctorId);
+            }
+            doctorCombo.setSelectedItem(selected);
+        } finally {
+            updatingDoctors = false;
+        }
+        if (!Objects.equals(selected, doctorCombo.getSelectedItem())) {
+            sorter.setDoctorFilter(null);
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package GUI;
+
+import models.Appointment;
+import models.AppointmentStatus;
+
+import javax.swing.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Sorting and filtering for an {@link AppointmentTableModel}.
+ *
+ * Every column is reduced to one int key per row: epoch minutes for the date,
+ * the status ordinal, and a rank among the distinct values for text columns.
+ * A column's ascending order is key and row packed into longs and sorted once,
+ * then reused both ways until the rows change. Status and doctor filters are
+ * bitsets kept per value and ANDed together; the date filter is a binary search
+ * over the sorted date column.
+ */
+public class AppointmentRowSorter extends RowSorter<AppointmentTableModel> {
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int NO_RANK = Integer.MIN_VALUE;
+
+    // Beyond this many changed rows, re-sorting beats patching row by row
+    private static final int MAX_PATCHED_ROWS = 64;
+
+    private final AppointmentTableModel model;
+
+    private List<SortKey> sortKeys = Collections.emptyList();
+
+    // Per model column, built on demand and dropped when rows change
+    private int[][] keys;
+    private long[][] ascending;
+    private String[][] distinct;
+
+    // Filter indexes over model rows
+    private BitSet[] byStatus;
+    private Map<String, BitSet> byDoctor;
+    private boolean indexed;
+
+    private Set<AppointmentStatus> statusFilter;
+    private String doctorFilter;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+
+    private int[] viewToModel;
+    private int[] modelToView;
+
+    public AppointmentRowSorter(AppointmentTableModel model) {
+        this.model = model;
+        allRowsChanged();
+    }
+
+    // ================= Filters =================
+
+    /**
+     * Show only these statuses; null or empty shows all
+     */
+    public void setStatusFilter(Set<AppointmentStatus> statuses) {
+        statusFilter = statuses == null || statuses.isEmpty() ? null : EnumSet.copyOf(statuses);
+        refresh();
+    }
+
+    /**
+     * Show only one doctor's appointments; null shows all
+     */
+    public void setDoctorFilter(String doctorId) {
+        doctorFilter = doctorId;
+        refresh();
+    }
+
+    /**
+     * Show appointments on days from {@code from} to {@code to}, both inclusive; null leaves a side open
+     */
+    public void setDateFilter(LocalDate from, LocalDate to) {
+        fromDate = from;
+        toDate = to;
+        refresh();
+    }
+
+    /**
+     * Doctors with at least one row, for filling a doctor picker
+     */
+    public Set<String> getDoctorIds() {
+        buildIndexes();
+        return new TreeSet<>(byDoctor.keySet());
+    }
+
+    private BitSet filterMask() {
+        if (statusFilter == null && doctorFilter == null && fromDate == null && toDate == null) {
+            return null;
+        }
+        buildIndexes();
+        int rows = model.getRowCount();
+        BitSet mask = new BitSet(rows);
+        mask.set(0, rows);
+
+        if (statusFilter != null) {
+            BitSet any = new BitSet(rows);
+            for (AppointmentStatus status : statusFilter) {
+                any.or(byStatus[status.ordinal()]);
+            }
+            mask.and(any);
+        }
+        if (doctorFilter != null) {
+            BitSet doctor = byDoctor.get(doctorFilter);
+            if (doctor == null) {
+                mask.clear();
+            } else {
+                mask.and(doctor);
+            }
+        }
+        if (fromDate != null || toDate != null) {
+            mask.and(dateMask(rows));
+        }
+        return mask;
+    }
+
+    private BitSet dateMask(int rows) {
+        int column = columnOf(AppointmentTableModel.Column.DATE_TIME);
+        BitSet mask = new BitSet(rows);
+        if (column < 0) {
+            mask.set(0, rows);
+            return mask;
+        }
+        // Rows without a date never match a date filter
+        long[] sorted = ascending(column);
+        int from = fromDate != null ? epochMinute(fromDate.atStartOfDay()) : NO_DATE + 1;
+        long to = toDate != null ? epochMinute(toDate.plusDays(1).atStartOfDay()) : Long.MAX_VALUE;
+
+        for (int i = lowerBound(sorted, from); i < sorted.length && (sorted[i] >> 32) < to; i++) {
+            mask.set((int) sorted[i]);
+        }
+        return mask;
+    }
+
+    private static int lowerBound(long[] sorted, int key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if ((int) (sorted[mid] >> 32) < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void buildIndexes() {
+        if (indexed) {
+            return;
+        }
+        int rows = model.getRowCount();
+        byStatus = new BitSet[AppointmentStatus.values().length];
+        for (int i = 0; i < byStatus.length; i++) {
+            byStatus[i] = new BitSet(rows);
+        }
+        byDoctor = new HashMap<>();
+        for (int row = 0; row < rows; row++) {
+            index(row, model.getAppointment(row));
+        }
+        indexed = true;
+    }
+
+    private void index(int row, Appointment a) {
+        if (a.getStatus() != null) {
+            byStatus[a.getStatus().ordinal()].set(row);
+        }
+        if (a.getDoctorId() != null) {
+            byDoctor.computeIfAbsent(a.getDoctorId(), id -> new BitSet()).set(row);
+        }
+    }
+
+    private void unindex(int row) {
+        for (BitSet set : byStatus) {
+            set.clear(row);
+        }
+        for (BitSet set : byDoctor.values()) {
+            set.clear(row);
+        }
+    }
+
+    // ================= Sort Keys =================
+
+    private int[] keys(int column) {
+        if (keys[column] == null) {
+            keys[column] = computeKeys(column);
+        }
+        return keys[column];
+    }
+
+    private int[] computeKeys(int column) {
+        int rows = model.getRowCount();
+        int[] k = new int[rows];
+        switch (model.getColumn(column)) {
+            case DATE_TIME:
+                for (int row = 0; row < rows; row++) {
+                    k[row] = dateKey(model.getAppointment(row));
+                }
+                return k;
+            case STATUS:
+                for (int row = 0; row < rows; row++) {
+                    k[row] = statusKey(model.getAppointment(row));
+                }
+                return k;
+            default:
+                // Rank each row's text among the column's distinct values
+                String[] text = new String[rows];
+                Map<String, Integer> rank = new HashMap<>();
+                for (int row = 0; row < rows; row++) {
+                    text[row] = textAt(row, column);
+                    rank.put(text[row], 0);
+                }
+                String[] values = rank.keySet().toArray(new String[0]);
+                Arrays.sort(values, String.CASE_INSENSITIVE_ORDER);
+                for (int i = 0; i < values.length; i++) {
+                    rank.put(values[i], rankOf(values, i));
+                }
+                for (int row = 0; row < rows; row++) {
+                    k[row] = rank.get(text[row]);
+                }
+                distinct[column] = values;
+                return k;
+        }
+    }
+
+    /**
+     * Current key of one row, or {@link #NO_RANK} if its text is new to the column
+     */
+    private int keyOf(int row, int column) {
+        switch (model.getColumn(column)) {
+            case DATE_TIME:
+                return dateKey(model.getAppointment(row));
+            case STATUS:
+                return statusKey(model.getAppointment(row));
+            default:
+                String[] values = distinct[column];
+                int i = Arrays.binarySearch(values, textAt(row, column), String.CASE_INSENSITIVE_ORDER);
+                return i >= 0 ? rankOf(values, i) : NO_RANK;
+        }
+    }
+
+    /**
+     * Values equal ignoring case share the rank of the first of them
+     */
+    private static int rankOf(String[] values, int i) {
+        while (i > 0 && String.CASE_INSENSITIVE_ORDER.compare(values[i - 1], values[i]) == 0) {
+            i--;
+        }
+        return i;
+    }
+
+    private String textAt(int row, int column) {
+        Object value = model.getValueAt(row, column);
+        return value != null ? value.toString() : "";
+    }
+
+    /**
+     * Move one row to its new place in a sorted column without re-sorting it
+     */
+    private static void move(long[] sorted, int row, int oldKey, int newKey) {
+        int from = Arrays.binarySearch(sorted, ((long) oldKey << 32) | row);
+        long entry = ((long) newKey << 32) | row;
+        int to = -Arrays.binarySearch(sorted, entry) - 1;
+        if (to > from) {
+            System.arraycopy(sorted, from + 1, sorted, from, to - 1 - from);
+            sorted[to - 1] = entry;
+        } else {
+            System.arraycopy(sorted, to, sorted, to + 1, from - to);
+            sorted[to] = entry;
+        }
+    }
+
+    /**
+     * Rows of a column in ascending key order, ties in model order; the low
+     * 32 bits of each entry are the model row
+     */
+    private long[] ascending(int column) {
+        if (ascending[column] == null) {
+            int[] k = keys(column);
+            long[] packed = new long[k.length];
+            for (int row = 0; row < k.length; row++) {
+                packed[row] = ((long) k[row] << 32) | row;
+            }
+            Arrays.sort(packed);
+            ascending[column] = packed;
+        }
+        return ascending[column];
+    }
+
+    private static int dateKey(Appointment a) {
+        return a.getAppointmentDateTime() != null ? epochMinute(a.getAppointmentDateTime()) : NO_DATE;
+    }
+
+    private static int statusKey(Appointment a) {
+        return a.getStatus() != null ? a.getStatus().ordinal() : -1;
+    }
+
+    private static int epochMinute(LocalDateTime dateTime) {
+        return (int) (dateTime.toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+    private int columnOf(AppointmentTableModel.Column column) {
+        for (int i = 0; i < model.getColumnCount(); i++) {
+            if (model.getColumn(i) == column) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // ================= View =================
+
+    private int[] buildView() {
+        int rows = model.getRowCount();
+        BitSet mask = filterMask();
+        int[] view = new int[mask != null ? mask.cardinality() : rows];
+        int n = 0;
+
+        if (sortKeys.isEmpty() || sortKeys.get(0).getSortOrder() == SortOrder.UNSORTED) {
+            for (int row = 0; row < rows; row++) {
+                if (mask == null || mask.get(row)) {
+                    view[n++] = row;
+                }
+            }
+            return view;
+        }
+
+        SortKey key = sortKeys.get(0);
+        long[] sorted = ascending(key.getColumn());
+        if (key.getSortOrder() == SortOrder.ASCENDING) {
+            for (long entry : sorted) {
+                int row = (int) entry;
+                if (mask == null || mask.get(row)) {
+                    view[n++] = row;
+                }
+            }
+        } else {
+            for (int i = sorted.length - 1; i >= 0; i--) {
+                int row = (int) sorted[i];
+                if (mask == null || mask.get(row)) {
+                    view[n++] = row;
+                }
+            }
+        }
+        return view;
+    }
+
+    /**
+     * Rebuild the view, telling the table only if the visible order changed
+     */
+    private void refresh() {
+        int[] previous = viewToModel;
+        int[] view = buildView();
+        if (Arrays.equals(previous, view) && modelToView.length == model.getRowCount()) {
+            return;
+        }
+        viewToModel = view;
+        modelToView = new int[model.getRowCount()];
+        Arrays.fill(modelToView, -1);
+        for (int i = 0; i < view.length; i++) {
+            modelToView[view[i]] = i;
+        }
+        fireRowSorterChanged(previous);
+    }
+
+    // ================= RowSorter =================
+
+    @Override
+    public AppointmentTableModel getModel() {
+        return model;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        SortOrder order = SortOrder.ASCENDING;
+        if (!sortKeys.isEmpty() && sortKeys.get(0).getColumn() == column
+                && sortKeys.get(0).getSortOrder() == SortOrder.ASCENDING) {
+            order = SortOrder.DESCENDING;
+        }
+        setSortKeys(Collections.singletonList(new SortKey(column, order)));
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        return viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        return index >= 0 && index < modelToView.length ? modelToView[index] : -1;
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> next = keys == null || keys.isEmpty()
+                ? Collections.emptyList()
+                : Collections.singletonList(keys.get(0));
+        if (next.equals(sortKeys)) {
+            return;
+        }
+        sortKeys = next;
+        fireSortOrderChanged();
+        refresh();
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return viewToModel.length;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        sortKeys = Collections.emptyList();
+        allRowsChanged();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        int columns = model.getColumnCount();
+        keys = new int[columns][];
+        ascending = new long[columns][];
+        distinct = new String[columns][];
+        indexed = false;
+        refresh();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        allRowsChanged();
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        allRowsChanged();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        if (indexed) {
+            for (int row = firstRow; row <= endRow; row++) {
+                unindex(row);
+                index(row, model.getAppointment(row));
+            }
+        }
+        for (int column = 0; column < keys.length; column++) {
+            if (keys[column] != null && !patch(column, firstRow, endRow)) {
+                keys[column] = null;
+                ascending[column] = null;
+                distinct[column] = null;
+            }
+        }
+        refresh();
+    }
+
+    /**
+     * Patch a few changed rows into a column's keys and order; false if the
+     * column has to be rebuilt instead
+     */
+    private boolean patch(int column, int firstRow, int endRow) {
+        if (endRow - firstRow >= MAX_PATCHED_ROWS) {
+            return false;
+        }
+        int[] k = keys[column];
+        for (int row = firstRow; row <= endRow; row++) {
+            int key = keyOf(row, column);
+            if (key == NO_RANK) {
+                return false;
+            }
+            if (key != k[row]) {
+                if (ascending[column] != null) {
+                    move(ascending[column], row, k[row], key);
+                }
+                k[row] = key;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        rowsUpdated(firstRow, endRow);
+    }
+}
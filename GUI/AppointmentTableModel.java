@@ -0,0 +1,335 @@
+package GUI;
+
+import models.Appointment;
+import models.AppointmentStatus;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Appointment table model keyed by appointment ID.
+ *
+ * A refresh is merged into the rows already shown: unchanged rows are left
+ * alone, and changed, new or vanished rows fire updates, inserts or deletes in
+ * contiguous runs, or one data-changed event when there are many runs.
+ * Selection and scroll position survive small refreshes, and a status change
+ * repaints one row instead of rebuilding the table.
+ */
+public class AppointmentTableModel extends AbstractTableModel {
+
+    public enum Column {
+        ID("Appointment ID"),
+        PATIENT("Patient"),
+        SERVICE("Service"),
+        DOCTOR("Doctor"),
+        DATE_TIME("Date/Time"),
+        STATUS("Status");
+
+        private final String title;
+
+        Column(String title) {
+            this.title = title;
+        }
+    }
+
+    /**
+     * Appointments plus the names they display, loaded together off the Event Dispatch Thread
+     */
+    public static final class Snapshot {
+        private final List<Appointment> appointments;
+        private final Map<String, String> serviceNames;
+        private final Map<String, String> doctorNames;
+
+        public Snapshot(List<Appointment> appointments, Map<String, String> serviceNames,
+                        Map<String, String> doctorNames) {
+            this.appointments = appointments;
+            this.serviceNames = serviceNames != null ? serviceNames : Collections.emptyMap();
+            this.doctorNames = doctorNames != null ? doctorNames : Collections.emptyMap();
+        }
+    }
+
+    private static final int MAX_RANGE_EVENTS = 4;
+
+    private final Column[] columns;
+    private final List<Appointment> rows = new ArrayList<>();
+    private final Map<String, Integer> rowById = new HashMap<>();
+
+    private Map<String, String> serviceNames = Collections.emptyMap();
+    private Map<String, String> doctorNames = Collections.emptyMap();
+
+    public AppointmentTableModel(Column... columns) {
+        this.columns = columns.clone();
+    }
+
+    // ================= Updates =================
+
+    /**
+     * Merge a freshly loaded list, keeping its order for new rows
+     */
+    public void setAppointments(Snapshot snapshot) {
+        List<Appointment> appointments = snapshot.appointments;
+        boolean namesChanged = !serviceNames.equals(snapshot.serviceNames) || !doctorNames.equals(snapshot.doctorNames);
+        serviceNames = snapshot.serviceNames;
+        doctorNames = snapshot.doctorNames;
+
+        if (rows.isEmpty()) {
+            rows.addAll(appointments);
+            reindex();
+            if (!rows.isEmpty()) {
+                fireTableRowsInserted(0, rows.size() - 1);
+            }
+            return;
+        }
+
+        Set<String> incoming = new HashSet<>();
+        for (Appointment a : appointments) {
+            incoming.add(a.getAppointmentId());
+        }
+
+        // Deletes, as old indexes
+        List<Appointment> kept = new ArrayList<>(rows.size());
+        List<Integer> deleted = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Appointment row = rows.get(i);
+            if (incoming.contains(row.getAppointmentId())) {
+                kept.add(row);
+            } else {
+                deleted.add(i);
+            }
+        }
+
+        // New rows land at their incoming index, kept rows keep their order around them
+        List<Appointment> merged = new ArrayList<>(appointments.size());
+        List<Integer> inserted = new ArrayList<>();
+        List<Integer> updated = new ArrayList<>();
+        Map<String, Appointment> latest = new HashMap<>();
+        Map<String, Integer> insertedAt = new HashMap<>();
+        int next = 0;
+        for (int i = 0; i < appointments.size(); i++) {
+            Appointment a = appointments.get(i);
+            if (rowById.containsKey(a.getAppointmentId())) {
+                latest.put(a.getAppointmentId(), a);
+                continue;
+            }
+            Integer duplicate = insertedAt.get(a.getAppointmentId());
+            if (duplicate != null) {
+                merged.set(duplicate, a);
+                continue;
+            }
+            while (merged.size() < i && next < kept.size()) {
+                merged.add(kept.get(next++));
+            }
+            insertedAt.put(a.getAppointmentId(), merged.size());
+            inserted.add(merged.size());
+            merged.add(a);
+        }
+        while (next < kept.size()) {
+            merged.add(kept.get(next++));
+        }
+        for (int i = 0; i < merged.size(); i++) {
+            Appointment old = merged.get(i);
+            Appointment fresh = latest.get(old.getAppointmentId());
+            if (fresh != null) {
+                if (!sameContent(old, fresh)) {
+                    updated.add(i);
+                }
+                merged.set(i, fresh);
+            }
+        }
+
+        List<int[]> deletedRanges = ranges(deleted);
+        List<int[]> insertedRanges = ranges(inserted);
+        // Each structural event makes a row sorter rebuild; past a few, one rebuild is cheaper
+        if (deletedRanges.size() + insertedRanges.size() > MAX_RANGE_EVENTS) {
+            rows.clear();
+            rows.addAll(merged);
+            reindex();
+            fireTableDataChanged();
+            return;
+        }
+
+        if (!deletedRanges.isEmpty()) {
+            rows.clear();
+            rows.addAll(kept);
+            // From the bottom so earlier indexes stay valid
+            for (int r = deletedRanges.size() - 1; r >= 0; r--) {
+                fireTableRowsDeleted(deletedRanges.get(r)[0], deletedRanges.get(r)[1]);
+            }
+        }
+        rows.clear();
+        rows.addAll(merged);
+        reindex();
+        // From the top, in final indexes, so each range is valid once the ones before it are in
+        for (int[] range : insertedRanges) {
+            fireTableRowsInserted(range[0], range[1]);
+        }
+
+        if (namesChanged && !rows.isEmpty()) {
+            fireTableRowsUpdated(0, rows.size() - 1);
+            return;
+        }
+        List<int[]> updatedRanges = ranges(updated);
+        if (updatedRanges.size() > MAX_RANGE_EVENTS) {
+            fireTableRowsUpdated(0, rows.size() - 1);
+        } else {
+            for (int[] range : updatedRanges) {
+                fireTableRowsUpdated(range[0], range[1]);
+            }
+        }
+    }
+
+    /**
+     * Ascending indexes grouped into inclusive [first, last] runs
+     */
+    private static List<int[]> ranges(List<Integer> indexes) {
+        List<int[]> ranges = new ArrayList<>();
+        for (int index : indexes) {
+            int[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && last[1] == index - 1) {
+                last[1] = index;
+            } else {
+                ranges.add(new int[] { index, index });
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Insert or replace one appointment
+     */
+    public void upsert(Appointment appointment) {
+        Integer existing = rowById.get(appointment.getAppointmentId());
+        if (existing != null) {
+            rows.set(existing, appointment);
+            fireTableRowsUpdated(existing, existing);
+        } else {
+            rows.add(appointment);
+            rowById.put(appointment.getAppointmentId(), rows.size() - 1);
+            fireTableRowsInserted(rows.size() - 1, rows.size() - 1);
+        }
+    }
+
+    /**
+     * Apply live changes: rows given are inserted or replaced, and changed IDs
+     * without a row are removed
+     */
+    public void merge(Set<String> changedIds, List<Appointment> current) {
+        Set<String> present = new HashSet<>();
+        for (Appointment a : current) {
+            present.add(a.getAppointmentId());
+            upsert(a);
+        }
+        for (String id : changedIds) {
+            if (!present.contains(id)) {
+                remove(id);
+            }
+        }
+    }
+
+    /**
+     * Record a status change made through the service; repaints just that row
+     */
+    public void updateStatus(String appointmentId, AppointmentStatus status) {
+        Integer row = rowById.get(appointmentId);
+        if (row != null) {
+            rows.get(row).setStatus(status);
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    public void remove(String appointmentId) {
+        Integer row = rowById.get(appointmentId);
+        if (row != null) {
+            rows.remove((int) row);
+            reindex();
+            fireTableRowsDeleted(row, row);
+        }
+    }
+
+    public Appointment getAppointment(int rowIndex) {
+        return rows.get(rowIndex);
+    }
+
+    public Column getColumn(int column) {
+        return columns[column];
+    }
+
+    public String getDoctorName(String doctorId) {
+        return doctorNames.getOrDefault(doctorId, doctorId);
+    }
+
+    public int indexOf(String appointmentId) {
+        Integer row = rowById.get(appointmentId);
+        return row != null ? row : -1;
+    }
+
+    private void reindex() {
+        rowById.clear();
+        for (int i = 0; i < rows.size(); i++) {
+            rowById.put(rows.get(i).getAppointmentId(), i);
+        }
+    }
+
+    private static boolean sameContent(Appointment a, Appointment b) {
+        return a.getStatus() == b.getStatus()
+                && Objects.equals(a.getAppointmentDateTime(), b.getAppointmentDateTime())
+                && Objects.equals(a.getPatientName(), b.getPatientName())
+                && Objects.equals(a.getServiceId(), b.getServiceId())
+                && Objects.equals(a.getDoctorId(), b.getDoctorId());
+    }
+
+    // ================= TableModel =================
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column].title;
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return columns[column] == Column.STATUS ? AppointmentStatus.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Appointment a = rows.get(rowIndex);
+        switch (columns[columnIndex]) {
+            case ID:
+                return a.getAppointmentId();
+            case PATIENT:
+                return a.getPatientName();
+            case SERVICE:
+                return serviceNames.getOrDefault(a.getServiceId(), a.getServiceId());
+            case DOCTOR:
+                return doctorNames.getOrDefault(a.getDoctorId(), a.getDoctorId());
+            case DATE_TIME:
+                return a.getAppointmentDateTime() != null ? a.getAppointmentDateTime().toString() : "";
+            case STATUS:
+                return a.getStatus();
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return false;
+    }
+}
@@ -0,0 +1,101 @@
+package GUI;
+
+import utils.Logger;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs a view's database queries off the Event Dispatch Thread.
+ *
+ * Each panel keeps one loader for its content area. A query runs on a shared
+ * background pool and its result is handed back on the EDT. Starting a new
+ * load, or calling {@link #cancel()} when the user navigates away, drops the
+ * load still in flight so a late result never lands in a view that is gone.
+ * The loader's indicator is shown while a load runs.
+ */
+public class AsyncLoader {
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4, r -> {
+        Thread t = new Thread(r, "async-loader-" + THREADS.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final JProgressBar indicator = new JProgressBar();
+    private Future<?> inFlight;
+    private long generation;
+
+    public AsyncLoader() {
+        indicator.setIndeterminate(true);
+        indicator.setPreferredSize(new Dimension(80, 12));
+        indicator.setToolTipText("Loading...");
+        indicator.setVisible(false);
+    }
+
+    /**
+     * Small busy bar for the view's action row
+     */
+    public JComponent getIndicator() {
+        return indicator;
+    }
+
+    /**
+     * Run {@code query} in the background and pass its result to {@code onLoaded}
+     * on the EDT. Call from the EDT.
+     */
+    public <T> void load(Callable<T> query, Consumer<T> onLoaded) {
+        cancel();
+        long ticket = generation;
+        indicator.setVisible(true);
+
+        inFlight = EXECUTOR.submit(() -> {
+            T result;
+            try {
+                result = query.call();
+            } catch (Exception e) {
+                Logger.logError("Background load failed", e);
+                SwingUtilities.invokeLater(() -> finish(ticket));
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (finish(ticket)) {
+                    onLoaded.accept(result);
+                }
+            });
+        });
+    }
+
+    /**
+     * Drop the load in flight, if any. A query already running is left to finish
+     * rather than interrupted, so its connection is returned cleanly.
+     */
+    public void cancel() {
+        generation++;
+        if (inFlight != null) {
+            inFlight.cancel(false);
+            inFlight = null;
+        }
+        indicator.setVisible(false);
+    }
+
+    public boolean isLoading() {
+        return inFlight != null;
+    }
+
+    private boolean finish(long ticket) {
+        if (ticket != generation) {
+            return false;
+        }
+        inFlight = null;
+        indicator.setVisible(false);
+        return true;
+    }
+}
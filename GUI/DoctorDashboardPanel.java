@@ -2,20 +2,21 @@ package GUI;
 
 import models.DoctorUser;
 import models.Appointment;
-import models.Doctor;
+import models.AppointmentStatus;
 import models.Service;
 import services.AppointmentServiceDB;
 import services.DoctorServiceDB;
+import services.ReferenceDataCache;
+import services.ServiceRegistry;
 import services.ServicesServiceDB;
 import services.UserService;
 import utils.ColorScheme;
 import utils.FontLoader;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DoctorDashboardPanel extends JPanel {
 
@@ -24,6 +25,11 @@ public class DoctorDashboardPanel extends JPanel {
     private AppointmentServiceDB appointmentService;
     private DoctorServiceDB doctorService;
     private ServicesServiceDB servicesService;
+    private final ReferenceDataCache referenceData = ReferenceDataCache.shared();
+    private final AsyncLoader loader = new AsyncLoader();
+    // Separate from loader so a status write never cancels, or is cancelled by, a table load
+    private final AsyncLoader statusUpdater = new AsyncLoader();
+    private final AppointmentFeed feed;
     private DoctorUser currentDoctor;
 
     private JButton dashboardButton, profileButton, logoutButton;
@@ -32,15 +38,19 @@ public class DoctorDashboardPanel extends JPanel {
 
     public DoctorDashboardPanel(MainFrame mainFrame, DoctorUser doctor) {
         this.mainFrame = mainFrame;
-        this.userService = mainFrame.getUserService();
-        this.appointmentService = new AppointmentServiceDB();
-        this.doctorService = new DoctorServiceDB();
-        this.servicesService = new ServicesServiceDB();
+        ServiceRegistry services = mainFrame.getServices();
+        this.userService = services.getUserService();
+        this.appointmentService = services.getAppointmentService();
+        this.doctorService = services.getDoctorService();
+        this.servicesService = services.getServicesService();
+        this.feed = new AppointmentFeed(services.getChangeLogPoller(), services.getAppointmentService());
         this.currentDoctor = doctor;
         initializeUI();
     }
 
     public void setDoctor(DoctorUser doctor) {
+        loader.cancel();
+        feed.unsubscribe();
         this.currentDoctor = doctor;
         removeAll();
         initializeUI();
@@ -83,20 +93,25 @@ public class DoctorDashboardPanel extends JPanel {
     }
 
     private void showAppointments() {
+        loader.cancel();
+        feed.unsubscribe();
         mainContent.removeAll();
         showHeader("Doctor Dashboard");
 
-        String[] columns = { "Appointment ID", "Patient", "Service", "Date/Time", "Status" };
-        DefaultTableModel model = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        AppointmentTableModel model = new AppointmentTableModel(AppointmentTableModel.Column.ID,
+                AppointmentTableModel.Column.PATIENT, AppointmentTableModel.Column.SERVICE,
+                AppointmentTableModel.Column.DATE_TIME, AppointmentTableModel.Column.STATUS);
 
+        AppointmentRowSorter sorter = new AppointmentRowSorter(model);
         JTable table = new JTable(model);
+        table.setRowSorter(sorter);
         JScrollPane scroll = new JScrollPane(table);
-        mainContent.add(scroll, BorderLayout.CENTER);
+
+        JPanel tablePanel = new JPanel(new BorderLayout(0, 8));
+        tablePanel.setOpaque(false);
+        tablePanel.add(new AppointmentFilterBar(sorter, false), BorderLayout.NORTH);
+        tablePanel.add(scroll, BorderLayout.CENTER);
+        mainContent.add(tablePanel, BorderLayout.CENTER);
 
         JButton refreshBtn = new JButton("Refresh");
         JButton approveBtn = new JButton("Approve");
@@ -105,72 +120,80 @@ public class DoctorDashboardPanel extends JPanel {
 
         JPanel actions = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
         actions.setOpaque(false);
+        actions.add(loader.getIndicator());
+        actions.add(statusUpdater.getIndicator());
         actions.add(refreshBtn);
         actions.add(approveBtn);
         actions.add(completeBtn);
         actions.add(cancelBtn);
         mainContent.add(actions, BorderLayout.SOUTH);
 
-        Runnable reload = () -> {
-            model.setRowCount(0);
-
-            Map<String, String> serviceNameById = new HashMap<>();
-            for (Service s : servicesService.getAllServices(false)) {
-                serviceNameById.put(s.getServiceId(), s.getServiceName());
-            }
-
-            Map<String, String> doctorNameById = new HashMap<>();
-            for (Doctor d : doctorService.getAllDoctors(false)) {
-                doctorNameById.put(d.getDoctorId(), d.getName());
-            }
-
-            String doctorId = currentDoctor.getUserId();
-            for (Appointment a : appointmentService.findByDoctorId(doctorId)) {
-                String dt = a.getAppointmentDateTime() != null ? a.getAppointmentDateTime().toString() : "";
-                model.addRow(new Object[] {
-                        a.getAppointmentId(),
-                        a.getPatientName(),
-                        serviceNameById.getOrDefault(a.getServiceId(), a.getServiceId()),
-                        dt,
-                        a.getStatus()
-                });
+        String doctorId = currentDoctor.getUserId();
+        Runnable reload = () -> loader.load(() -> new AppointmentTableModel.Snapshot(
+                appointmentService.findByDoctorId(doctorId),
+                referenceData.getServiceNames(() -> servicesService.getAllServices(false)),
+                null), model::setAppointments);
+
+        // New bookings and changes made elsewhere arrive without a refresh
+        feed.subscribe((ids, rows) -> {
+            List<Appointment> mine = new ArrayList<>();
+            for (Appointment a : rows) {
+                if (doctorId.equals(a.getDoctorId())) {
+                    mine.add(a);
+                }
             }
-        };
+            model.merge(ids, mine);
+        }, reload);
 
         refreshBtn.addActionListener(e -> reload.run());
 
-        approveBtn.addActionListener(e -> updateSelectedAppointmentStatus(table, model, "APPROVED", reload));
-        completeBtn.addActionListener(e -> updateSelectedAppointmentStatus(table, model, "COMPLETED", reload));
-        cancelBtn.addActionListener(e -> updateSelectedAppointmentStatus(table, model, "CANCELLED", reload));
+        approveBtn.addActionListener(e -> updateSelectedAppointmentStatus(table, model, AppointmentStatus.APPROVED));
+        completeBtn.addActionListener(e -> updateSelectedAppointmentStatus(table, model, AppointmentStatus.COMPLETED));
+        cancelBtn.addActionListener(e -> updateSelectedAppointmentStatus(table, model, AppointmentStatus.CANCELLED));
 
-        SwingUtilities.invokeLater(reload);
+        reload.run();
 
         revalidate();
         repaint();
     }
 
-    private void updateSelectedAppointmentStatus(JTable table, DefaultTableModel model, String status, Runnable reload) {
+    private void updateSelectedAppointmentStatus(JTable table, AppointmentTableModel model, AppointmentStatus status) {
+        if (statusUpdater.isLoading()) {
+            // One write at a time; its indicator is showing
+            return;
+        }
         int row = table.getSelectedRow();
         if (row < 0) {
             JOptionPane.showMessageDialog(this, "Select an appointment first.", "Validation", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
-        String appointmentId = (String) model.getValueAt(row, 0);
+        Appointment selected = model.getAppointment(table.convertRowIndexToModel(row));
+        String appointmentId = selected.getAppointmentId();
+        AppointmentStatus current = selected.getStatus();
+        if (current != null && !current.canTransitionTo(status)) {
+            JOptionPane.showMessageDialog(this, "A " + current + " appointment cannot be set to " + status + ".",
+                    "Validation", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
         int confirm = JOptionPane.showConfirmDialog(this, "Set selected appointment to " + status + "?", "Confirm", JOptionPane.YES_NO_OPTION);
         if (confirm != JOptionPane.YES_OPTION) {
             return;
         }
 
-        boolean ok = appointmentService.updateAppointmentStatus(appointmentId, status);
-        if (ok) {
-            reload.run();
-        } else {
-            JOptionPane.showMessageDialog(this, "Failed to update appointment.", "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        statusUpdater.load(() -> appointmentService.updateAppointmentStatus(appointmentId, status), ok -> {
+            if (ok) {
+                model.updateStatus(appointmentId, status);
+            } else {
+                JOptionPane.showMessageDialog(this, "Failed to update appointment.", "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
     }
 
     private void showProfile() {
+        loader.cancel();
+        feed.unsubscribe();
         mainContent.removeAll();
         showHeader("Doctor Profile");
 
@@ -226,6 +249,8 @@ public class DoctorDashboardPanel extends JPanel {
         logoutButton = createSidebarButton("Logout");
 
         logoutButton.addActionListener(e -> {
+            loader.cancel();
+            feed.unsubscribe();
             userService.logout();
             mainFrame.showWelcomeScreen();
         });
@@ -39,7 +39,7 @@ public class LoginPanel extends JPanel {
 
     public LoginPanel(MainFrame mainFrame) {
         this.mainFrame = mainFrame;
-        this.userService = new UserServicesDB();
+        this.userService = mainFrame.getServices().getUserAccounts();
 
         setLayout(new BorderLayout());
         setBackground(BACKGROUND_COLOR);
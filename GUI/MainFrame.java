@@ -1,10 +1,12 @@
 package GUI;
 
 import db.DataBaseConnection;
+import db.SchemaMigrations;
 import models.Admin;
 import models.DoctorUser;
 import models.Patient;
 import models.Staff;
+import services.ServiceRegistry;
 import services.UserService;
 import utils.Logger;
 
@@ -12,13 +14,13 @@ import javax.swing.*;
 import java.awt.*;
 
 public class MainFrame extends JFrame {
-    private UserService userService;
+    private final ServiceRegistry services;
     private JPanel contentPanel;
     private CardLayout cardLayout;
 
-    public MainFrame() {
+    public MainFrame(ServiceRegistry services) {
         super("DermAppoint - Dermatology Management System");
-        this.userService = new UserService();
+        this.services = services;
         initializeUI();
     }
 
@@ -193,8 +195,12 @@ public class MainFrame extends JFrame {
     }
 
     // ---------------- SERVICES ----------------
+    public ServiceRegistry getServices() {
+        return services;
+    }
+
     public UserService getUserService() {
-        return userService;
+        return services.getUserService();
     }
     
     // ---------------- UTILITY METHODS ----------------
@@ -233,12 +239,17 @@ public class MainFrame extends JFrame {
 
         try {
             DataBaseConnection.initializeDatabase();
+            SchemaMigrations.apply();
         } catch (Exception e) {
             Logger.logError("Failed to initialize database", e);
         }
+
+        ServiceRegistry services = new ServiceRegistry();
+        services.start();
+        services.warmUp();
         
         SwingUtilities.invokeLater(() -> {
-            MainFrame frame = new MainFrame();
+            MainFrame frame = new MainFrame(services);
             
             // Center the frame on screen
             frame.setLocationRelativeTo(null);
@@ -250,8 +261,7 @@ public class MainFrame extends JFrame {
             frame.addWindowListener(new java.awt.event.WindowAdapter() {
                 @Override
                 public void windowClosing(java.awt.event.WindowEvent windowEvent) {
-                    // Perform cleanup if needed
-                    // frame.getUserService().cleanup();
+                    services.shutdown();
                 }
             });
         });
@@ -0,0 +1,203 @@
+package GUI;
+
+import utils.Logger;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * Table model that holds only the pages of rows the table has asked for.
+ *
+ * The row count comes from the source up front; rows are fetched a page at a
+ * time the first time the JTable paints one of them, together with the page
+ * after it. At most {@code maxPages} pages stay in memory, least recently
+ * used first out, so scrolling a very long history costs constant memory.
+ * Rows of a page still loading read as empty and are repainted when it lands.
+ * A page that fails to load is not kept, so it is asked for again next paint.
+ */
+public class PagedTableModel<R> extends AbstractTableModel {
+
+    /**
+     * Where the rows come from. Both calls run off the Event Dispatch Thread.
+     */
+    public interface PageSource<R> {
+        int count();
+
+        /**
+         * @return the rows, or null if they could not be read
+         */
+        List<R> fetch(int offset, int limit);
+    }
+
+    /**
+     * Cell value of one column for a row
+     */
+    public interface Columns<R> {
+        Object valueAt(R row, int column);
+    }
+
+    private static final ExecutorService FETCHER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "table-page-fetcher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String[] columnNames;
+    private final PageSource<R> source;
+    private final Columns<R> columns;
+    private final int pageSize;
+
+    private final Map<Integer, List<R>> pages;
+    private final Set<Integer> loading = new HashSet<>();
+    private int rowCount;
+    private long generation;
+
+    public PagedTableModel(String[] columnNames, PageSource<R> source, Columns<R> columns,
+                           int pageSize, int maxPages) {
+        this.columnNames = columnNames.clone();
+        this.source = source;
+        this.columns = columns;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<Integer, List<R>>(maxPages + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<R>> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    // ================= Loading =================
+
+    /**
+     * Start over with a fresh row count, e.g. from {@link PageSource#count()} run
+     * in the background. Cached pages are dropped and late pages ignored.
+     */
+    public void reset(int rowCount) {
+        generation++;
+        pages.clear();
+        loading.clear();
+        this.rowCount = Math.max(0, rowCount);
+        fireTableDataChanged();
+    }
+
+    /**
+     * The row at an index if its page is in memory, without triggering a fetch
+     */
+    public R getLoadedRow(int rowIndex) {
+        List<R> page = pages.get(rowIndex / pageSize);
+        int offset = rowIndex % pageSize;
+        return page != null && offset < page.size() ? page.get(offset) : null;
+    }
+
+    /**
+     * Index of the first in-memory row matching, or -1; pages not loaded are not searched
+     */
+    public int findLoaded(Predicate<R> match) {
+        for (Map.Entry<Integer, List<R>> page : pages.entrySet()) {
+            List<R> rows = page.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (match.test(rows.get(i))) {
+                    return page.getKey() * pageSize + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Swap in a changed row if its page is in memory, repainting only that row
+     */
+    public boolean replaceLoadedRow(int rowIndex, R row) {
+        List<R> page = pages.get(rowIndex / pageSize);
+        int offset = rowIndex % pageSize;
+        if (page == null || offset >= page.size()) {
+            return false;
+        }
+        page.set(offset, row);
+        fireTableRowsUpdated(rowIndex, rowIndex);
+        return true;
+    }
+
+    private R rowAt(int rowIndex) {
+        int pageIndex = rowIndex / pageSize;
+        List<R> page = pages.get(pageIndex);
+        if (page == null) {
+            request(pageIndex);
+            return null;
+        }
+        // Stay a page ahead of a scrolling user
+        if (rowIndex % pageSize >= pageSize / 2) {
+            request(pageIndex + 1);
+        }
+        int offset = rowIndex % pageSize;
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    private void request(int pageIndex) {
+        int offset = pageIndex * pageSize;
+        if (offset >= rowCount || pages.containsKey(pageIndex) || !loading.add(pageIndex)) {
+            return;
+        }
+        long ticket = generation;
+        FETCHER.execute(() -> {
+            List<R> rows;
+            try {
+                rows = source.fetch(offset, pageSize);
+            } catch (RuntimeException e) {
+                Logger.logError("Failed to fetch table rows " + offset + "+" + pageSize, e);
+                rows = null;
+            }
+            List<R> fetched = rows;
+            SwingUtilities.invokeLater(() -> {
+                if (ticket != generation) {
+                    return;
+                }
+                loading.remove(pageIndex);
+                if (fetched == null) {
+                    return;
+                }
+                pages.put(pageIndex, fetched);
+                int last = Math.min(rowCount, offset + pageSize) - 1;
+                if (last >= offset) {
+                    fireTableRowsUpdated(offset, last);
+                }
+            });
+        });
+    }
+
+    // ================= TableModel =================
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        R row = rowAt(rowIndex);
+        return row != null ? columns.valueAt(row, columnIndex) : null;
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return false;
+    }
+}
@@ -1,25 +1,35 @@
 package GUI;
 
 import models.Appointment;
+import models.AppointmentStatus;
 import models.Doctor;
 import models.Patient;
 import models.Service;
 import models.TimeSlot;
 import services.AppointmentServiceDB;
 import services.DoctorServiceDB;
+import services.ReferenceDataCache;
+import services.ServiceRegistry;
 import services.ServicesServiceDB;
+import services.SlotHoldManager;
 import services.NotificationService;
 import services.UserService;
 import utils.ColorScheme;
 import utils.FontLoader;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 public class PatientDashBoardPanel extends JPanel {
 
@@ -28,6 +38,9 @@ public class PatientDashBoardPanel extends JPanel {
     private AppointmentServiceDB appointmentService;
     private DoctorServiceDB doctorService;
     private ServicesServiceDB servicesService;
+    private final ReferenceDataCache referenceData = ReferenceDataCache.shared();
+    private final AsyncLoader loader = new AsyncLoader();
+    private final AppointmentFeed feed;
     private NotificationService notificationService;
 
     public AppointmentServiceDB getAppointmentService() {
@@ -46,29 +59,77 @@ public class PatientDashBoardPanel extends JPanel {
         this.notificationService = notificationService;
     }
 
+    private static final int AVAILABILITY_DEBOUNCE_MILLIS = 250;
+
     private Patient currentPatient;
 
     private JPanel mainContentPanel;
     private Map<String, JButton> sidebarButtons = new HashMap<>();
 
+    // One view per menu item, built on first visit and kept across navigation
+    private final Map<String, CachedView> views = new HashMap<>();
+    private final CardLayout viewCards = new CardLayout();
+    private String currentView;
+    private boolean appointmentsStale = true;
+    // Bumped by every local change to the patient's appointments. A load only
+    // clears appointmentsStale if nothing changed after its query started.
+    private long appointmentsChanges;
+    private long appointmentsLoadingFrom = -1;
+
+    /**
+     * Result of one availability fetch; doctors is null when only times were asked for
+     */
+    private static final class Availability {
+        private final List<Doctor> doctors;
+        private final String doctorId;
+        private final List<TimeSlot> times;
+
+        Availability(List<Doctor> doctors, String doctorId, List<TimeSlot> times) {
+            this.doctors = doctors;
+            this.doctorId = doctorId;
+            this.times = times;
+        }
+    }
+
+    /**
+     * A sidebar view kept between visits. onShow brings its data up to date
+     * without rebuilding it; onHide lets go of anything held while it is away.
+     */
+    private static final class CachedView {
+        private final JComponent component;
+        private Runnable onShow;
+        private Runnable onHide;
+
+        CachedView(JComponent component) {
+            this.component = component;
+        }
+    }
+
     public PatientDashBoardPanel(MainFrame mainFrame, Patient patient) {
         this.mainFrame = mainFrame;
-        this.userService = mainFrame.getUserService();
-        this.appointmentService = new AppointmentServiceDB();
-        this.doctorService = new DoctorServiceDB();
-        this.servicesService = new ServicesServiceDB();
-        this.notificationService = new NotificationService();
+        ServiceRegistry services = mainFrame.getServices();
+        this.userService = services.getUserService();
+        this.appointmentService = services.getAppointmentService();
+        this.doctorService = services.getDoctorService();
+        this.servicesService = services.getServicesService();
+        this.feed = new AppointmentFeed(services.getChangeLogPoller(), services.getAppointmentService());
+        this.notificationService = services.getNotificationService();
         this.currentPatient = patient;
 
         initializeUI();
     }
 
     public void setPatient(Patient patient) {
+        loader.cancel();
+        feed.unsubscribe();
+        hideCurrentView();
+        // Every cached view shows the previous patient's data
+        views.clear();
+        mainContentPanel.removeAll();
+        currentView = null;
+        appointmentsStale = true;
         this.currentPatient = patient;
-        removeAll();
-        initializeUI();
-        revalidate();
-        repaint();
+        showDashboard("Dashboard");
     }
 
     private void initializeUI() {
@@ -79,7 +140,7 @@ public class PatientDashBoardPanel extends JPanel {
         add(createSidebar(), BorderLayout.WEST);
 
         // Main content
-        mainContentPanel = new JPanel(new BorderLayout());
+        mainContentPanel = new JPanel(viewCards);
         mainContentPanel.setBackground(ColorScheme.BACKGROUND);
         mainContentPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         add(mainContentPanel, BorderLayout.CENTER);
@@ -128,6 +189,9 @@ public class PatientDashBoardPanel extends JPanel {
     private void handleSidebarClick(String menuItem) {
         // Logout
         if ("Logout".equals(menuItem)) {
+            loader.cancel();
+            feed.unsubscribe();
+            hideCurrentView();
             userService.logout();
             mainFrame.showWelcomeScreen();
             return;
@@ -148,40 +212,54 @@ public class PatientDashBoardPanel extends JPanel {
     }
 
     private void showDashboard(String menuItem) {
-        mainContentPanel.removeAll();
+        if (!menuItem.equals(currentView)) {
+            hideCurrentView();
+        }
+
+        CachedView view = views.get(menuItem);
+        if (view == null) {
+            view = createView(menuItem);
+            views.put(menuItem, view);
+            mainContentPanel.add(view.component, menuItem);
+        }
+        viewCards.show(mainContentPanel, menuItem);
+        currentView = menuItem;
 
+        if (view.onShow != null) {
+            view.onShow.run();
+        }
+    }
+
+    private void hideCurrentView() {
+        CachedView view = currentView != null ? views.get(currentView) : null;
+        if (view != null && view.onHide != null) {
+            view.onHide.run();
+        }
+    }
+
+    private CachedView createView(String menuItem) {
         switch (menuItem) {
             case "Dashboard":
-                mainContentPanel.add(createDashboardHome(), BorderLayout.CENTER);
-                break;
+                return createDashboardHome();
             case "Book Appointment":
-                mainContentPanel.add(createBookAppointmentPanel(), BorderLayout.CENTER);
-                break;
+                return createBookAppointmentPanel();
             case "My Appointments":
-                mainContentPanel.add(createMyAppointmentsPanel(), BorderLayout.CENTER);
-                break;
+                return createMyAppointmentsPanel();
             case "Book for Family":
-                mainContentPanel.add(createBookForFamilyPanel(), BorderLayout.CENTER);
-                break;
+                return new CachedView(createBookForFamilyPanel());
             case "Services":
-                mainContentPanel.add(createServicesPanel(), BorderLayout.CENTER);
-                break;
+                return new CachedView(createServicesPanel());
             case "Profile":
-                mainContentPanel.add(createProfilePanel(), BorderLayout.CENTER);
-                break;
+                return new CachedView(createProfilePanel());
             case "Settings":
-                mainContentPanel.add(createSettingsPanel(), BorderLayout.CENTER);
-                break;
+                return new CachedView(createSettingsPanel());
             default:
-                mainContentPanel.add(new JLabel("Coming Soon"), BorderLayout.CENTER);
+                return new CachedView(new JLabel("Coming Soon"));
         }
-
-        mainContentPanel.revalidate();
-        mainContentPanel.repaint();
     }
 
     // ---------------- DASHBOARD HOME ----------------
-    private JPanel createDashboardHome() {
+    private CachedView createDashboardHome() {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBackground(ColorScheme.BACKGROUND);
 
@@ -211,7 +289,10 @@ public class PatientDashBoardPanel extends JPanel {
         cards.add(createClickableCard("Services", "View available services", "Services"));
 
         panel.add(cards, BorderLayout.CENTER);
-        return panel;
+
+        CachedView view = new CachedView(panel);
+        view.onShow = () -> dateLabel.setText("Today: " + java.time.LocalDate.now());
+        return view;
     }
 
     private JPanel createClickableCard(String title, String description, String targetMenu) {
@@ -255,7 +336,7 @@ public class PatientDashBoardPanel extends JPanel {
     }
 
     // ---------------- PLACEHOLDER PANELS ----------------
-    private JPanel createBookAppointmentPanel() {
+    private CachedView createBookAppointmentPanel() {
         JPanel panel = new JPanel(new BorderLayout(12, 12));
         panel.setBackground(ColorScheme.BACKGROUND);
 
@@ -272,9 +353,22 @@ public class PatientDashBoardPanel extends JPanel {
         gbc.anchor = GridBagConstraints.WEST;
 
         JComboBox<Service> serviceCombo = new JComboBox<>();
-        for (Service s : servicesService.getAllServices(true)) {
-            serviceCombo.addItem(s);
-        }
+        // The cache hands back the same list until the catalog changes
+        AtomicReference<List<Service>> shownServices = new AtomicReference<>();
+        Runnable refreshServices = () -> {
+            List<Service> services = referenceData.getServices(true, () -> servicesService.getAllServices(true));
+            if (services == shownServices.get()) {
+                return;
+            }
+            Object selected = serviceCombo.getSelectedItem();
+            serviceCombo.removeAllItems();
+            for (Service s : services) {
+                serviceCombo.addItem(s);
+            }
+            serviceCombo.setSelectedItem(selected);
+            shownServices.set(services);
+        };
+        refreshServices.run();
         serviceCombo.setRenderer((list, value, index, isSelected, cellHasFocus) -> {
             JLabel label = new JLabel(value != null ? value.getServiceName() : "");
             label.setOpaque(true);
@@ -306,7 +400,14 @@ public class PatientDashBoardPanel extends JPanel {
         });
 
         JComboBox<TimeSlot> timeCombo = new JComboBox<>();
-
+        JLabel holdLabel = new JLabel(" ");
+        holdLabel.setForeground(ColorScheme.TEXT_MEDIUM);
+        // The slot currently held for this patient while they finish the form
+        AtomicReference<SlotHoldManager.Hold> heldSlot = new AtomicReference<>();
+        // Combos are refilled in code; their listeners ignore those changes
+        boolean[] adjusting = { false };
+
+        AsyncLoader availabilityLoader = new AsyncLoader();
         JButton loadAvailabilityBtn = new JButton("Load Availability");
         JButton bookBtn = new JButton("Book Appointment");
 
@@ -340,71 +441,171 @@ public class PatientDashBoardPanel extends JPanel {
         gbc.gridx = 1;
         form.add(timeCombo, gbc);
 
+        gbc.gridy = 5;
+        form.add(holdLabel, gbc);
+
         JPanel actions = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
         actions.setOpaque(false);
+        actions.add(availabilityLoader.getIndicator());
         actions.add(loadAvailabilityBtn);
         actions.add(bookBtn);
 
         gbc.gridx = 0;
-        gbc.gridy = 5;
+        gbc.gridy = 6;
         gbc.gridwidth = 2;
         form.add(actions, gbc);
 
         panel.add(form, BorderLayout.CENTER);
 
-        Runnable reloadDoctorsAndTimes = () -> {
-            doctorCombo.removeAllItems();
-            timeCombo.removeAllItems();
+        Runnable releaseHold = () -> {
+            SlotHoldManager.Hold previous = heldSlot.getAndSet(null);
+            if (previous != null) {
+                appointmentService.releaseHold(previous.getToken());
+            }
+            holdLabel.setText(" ");
+        };
 
-            LocalDate date;
+        Runnable holdSelectedTime = () -> {
+            releaseHold.run();
+            Doctor doc = (Doctor) doctorCombo.getSelectedItem();
+            TimeSlot ts = (TimeSlot) timeCombo.getSelectedItem();
+            if (doc == null || ts == null) {
+                return;
+            }
+            LocalDateTime when;
             try {
-                date = LocalDate.parse(dateField.getText().trim());
+                when = LocalDateTime.of(LocalDate.parse(dateField.getText().trim()), LocalTime.parse(ts.getTime()));
             } catch (Exception ex) {
-                JOptionPane.showMessageDialog(this, "Invalid date. Use YYYY-MM-DD", "Validation", JOptionPane.WARNING_MESSAGE);
                 return;
             }
 
-            String slot = (String) amPmCombo.getSelectedItem();
-            for (Doctor d : doctorService.getAvailableDoctors(date, slot)) {
-                doctorCombo.addItem(d);
+            SlotHoldManager.Hold hold = appointmentService.holdSlot(currentPatient, doc.getDoctorId(), when);
+            if (hold == null) {
+                holdLabel.setText("That time was just taken. Please choose another.");
+                return;
             }
+            heldSlot.set(hold);
+            LocalTime until = LocalTime.now().plusSeconds((hold.getExpiresAtMillis() - System.currentTimeMillis()) / 1000);
+            holdLabel.setText("Held for you until " + until.withNano(0));
         };
 
-        Runnable reloadTimes = () -> {
-            timeCombo.removeAllItems();
-            LocalDate date;
+        // Availability requests. Each user action is queued at the widest scope any
+        // action in the burst asked for, a burst within the debounce delay becomes one
+        // fetch off the Event Dispatch Thread, and an answer overtaken by a newer
+        // request is dropped by the loader. A doctors request stays owed until a
+        // doctor list is actually shown, so a dropped answer cannot lose it.
+        boolean[] pendingDoctors = { false };
+        Timer debounce = new Timer(AVAILABILITY_DEBOUNCE_MILLIS, null);
+        debounce.setRepeats(false);
+
+        Runnable clearAvailability = () -> {
+            adjusting[0] = true;
             try {
-                date = LocalDate.parse(dateField.getText().trim());
-            } catch (Exception ex) {
-                return;
+                doctorCombo.removeAllItems();
+                timeCombo.removeAllItems();
+            } finally {
+                adjusting[0] = false;
             }
+        };
 
-            Doctor doc = (Doctor) doctorCombo.getSelectedItem();
-            if (doc == null) {
+        Runnable fetchAvailability = () -> {
+            debounce.stop();
+            boolean withDoctors = pendingDoctors[0];
+            releaseHold.run();
+
+            LocalDate date = parseDate(dateField);
+            if (date == null) {
+                availabilityLoader.cancel();
+                clearAvailability.run();
                 return;
             }
-
             String slot = (String) amPmCombo.getSelectedItem();
-            for (TimeSlot ts : doctorService.getAvailableTimeSlots(doc.getDoctorId(), date)) {
-                if (!ts.isAvailable()) {
-                    continue;
+            Doctor chosen = (Doctor) doctorCombo.getSelectedItem();
+            String chosenId = chosen != null ? chosen.getDoctorId() : null;
+            String viewerId = currentPatient.getUserId();
+
+            availabilityLoader.load(() -> {
+                List<Doctor> doctors = withDoctors ? doctorService.getAvailableDoctors(date, slot) : null;
+                String doctorId = chosenId;
+                if (doctors != null) {
+                    // Keep the chosen doctor if still available, else offer the first
+                    doctorId = doctors.isEmpty() ? null : doctors.get(0).getDoctorId();
+                    for (Doctor d : doctors) {
+                        if (d.getDoctorId().equals(chosenId)) {
+                            doctorId = chosenId;
+                        }
+                    }
                 }
-                if ("AM".equals(slot) && ts.getTime().compareTo("12:00") < 0) {
-                    timeCombo.addItem(ts);
-                } else if ("PM".equals(slot) && ts.getTime().compareTo("12:00") >= 0) {
-                    timeCombo.addItem(ts);
+                List<TimeSlot> times = doctorId != null
+                        ? doctorService.getAvailableTimeSlots(doctorId, date, viewerId)
+                        : Collections.<TimeSlot>emptyList();
+                return new Availability(doctors, doctorId, times);
+            }, result -> {
+                if (debounce.isRunning()) {
+                    // The form changed again while this was loading; a fresh fetch is on its way
+                    return;
                 }
-            }
+                adjusting[0] = true;
+                try {
+                    if (result.doctors != null) {
+                        pendingDoctors[0] = false;
+                        doctorCombo.removeAllItems();
+                        for (Doctor d : result.doctors) {
+                            doctorCombo.addItem(d);
+                            if (d.getDoctorId().equals(result.doctorId)) {
+                                doctorCombo.setSelectedItem(d);
+                            }
+                        }
+                    }
+                    timeCombo.removeAllItems();
+                    fillTimes(timeCombo, result.times, slot);
+                } finally {
+                    adjusting[0] = false;
+                }
+                holdSelectedTime.run();
+            });
+        };
+        debounce.addActionListener(e -> fetchAvailability.run());
+
+        Consumer<Boolean> requestAvailability = withDoctors -> {
+            pendingDoctors[0] |= withDoctors;
+            debounce.restart();
         };
 
         loadAvailabilityBtn.addActionListener(e -> {
-            reloadDoctorsAndTimes.run();
-            reloadTimes.run();
+            if (parseDate(dateField) == null) {
+                JOptionPane.showMessageDialog(this, "Invalid date. Use YYYY-MM-DD", "Validation", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            // An explicit request skips the wait
+            pendingDoctors[0] = true;
+            fetchAvailability.run();
+        });
+        dateField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                requestAvailability.accept(true);
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                requestAvailability.accept(true);
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        amPmCombo.addActionListener(e -> requestAvailability.accept(true));
+        doctorCombo.addActionListener(e -> {
+            if (!adjusting[0]) {
+                requestAvailability.accept(false);
+            }
         });
-        doctorCombo.addActionListener(e -> reloadTimes.run());
-        amPmCombo.addActionListener(e -> {
-            reloadDoctorsAndTimes.run();
-            reloadTimes.run();
+        timeCombo.addActionListener(e -> {
+            if (!adjusting[0]) {
+                holdSelectedTime.run();
+            }
         });
 
         bookBtn.addActionListener(e -> {
@@ -441,11 +642,25 @@ public class PatientDashBoardPanel extends JPanel {
             }
 
             try {
-                Appointment created = appointmentService.createAppointment(currentPatient, svc.getServiceId(), LocalDateTime.of(date, time), doc.getDoctorId());
+                LocalDateTime when = LocalDateTime.of(date, time);
+                SlotHoldManager.Hold hold = heldSlot.get();
+                Appointment created;
+                if (hold != null && hold.getDoctorId().equals(doc.getDoctorId()) && hold.getDateTime().equals(when)) {
+                    heldSlot.set(null);
+                    created = appointmentService.bookHeld(currentPatient, hold.getToken(), svc.getServiceId());
+                } else {
+                    created = appointmentService.createAppointment(currentPatient, svc.getServiceId(), when, doc.getDoctorId());
+                }
                 if (created == null) {
                     JOptionPane.showMessageDialog(this, "Failed to book appointment.", "Error", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
+                holdLabel.setText(" ");
+
+                // The form stays cached, so clear the availability it was showing
+                clearAvailability.run();
+                appointmentsStale = true;
+                appointmentsChanges++;
 
                 notificationService.sendAppointmentConfirmation(currentPatient.getEmail(),
                         "Service: " + svc.getServiceName() + "\nDoctor: " + doc.getName() + "\nDate/Time: " + created.getAppointmentDateTime());
@@ -456,10 +671,40 @@ public class PatientDashBoardPanel extends JPanel {
             }
         });
 
-        return panel;
+        CachedView view = new CachedView(panel);
+        view.onShow = refreshServices;
+        // Don't keep a slot from other patients while the form is out of sight
+        view.onHide = () -> {
+            debounce.stop();
+            pendingDoctors[0] = false;
+            availabilityLoader.cancel();
+            releaseHold.run();
+        };
+        return view;
+    }
+
+    private static LocalDate parseDate(JTextField dateField) {
+        try {
+            return LocalDate.parse(dateField.getText().trim());
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    private void fillTimes(JComboBox<TimeSlot> timeCombo, List<TimeSlot> slots, String slot) {
+        for (TimeSlot ts : slots) {
+            if (!ts.isAvailable()) {
+                continue;
+            }
+            if ("AM".equals(slot) && ts.getTime().compareTo("12:00") < 0) {
+                timeCombo.addItem(ts);
+            } else if ("PM".equals(slot) && ts.getTime().compareTo("12:00") >= 0) {
+                timeCombo.addItem(ts);
+            }
+        }
     }
 
-    private JPanel createMyAppointmentsPanel() {
+    private CachedView createMyAppointmentsPanel() {
         JPanel panel = new JPanel(new BorderLayout(12, 12));
         panel.setBackground(ColorScheme.BACKGROUND);
 
@@ -468,95 +713,110 @@ public class PatientDashBoardPanel extends JPanel {
         title.setForeground(ColorScheme.TEXT_DARK);
         panel.add(title, BorderLayout.NORTH);
 
-        String[] columns = { "Appointment ID", "Service", "Doctor", "Date/Time", "Status" };
-        javax.swing.table.DefaultTableModel model = new javax.swing.table.DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        AppointmentTableModel model = new AppointmentTableModel(AppointmentTableModel.Column.ID,
+                AppointmentTableModel.Column.SERVICE, AppointmentTableModel.Column.DOCTOR,
+                AppointmentTableModel.Column.DATE_TIME, AppointmentTableModel.Column.STATUS);
+        AppointmentRowSorter sorter = new AppointmentRowSorter(model);
+        AppointmentFilterBar filters = new AppointmentFilterBar(sorter, true);
         JTable table = new JTable(model);
+        table.setRowSorter(sorter);
         JScrollPane scroll = new JScrollPane(table);
-        panel.add(scroll, BorderLayout.CENTER);
+
+        JPanel tablePanel = new JPanel(new BorderLayout(0, 8));
+        tablePanel.setOpaque(false);
+        tablePanel.add(filters, BorderLayout.NORTH);
+        tablePanel.add(scroll, BorderLayout.CENTER);
+        panel.add(tablePanel, BorderLayout.CENTER);
 
         JButton refreshBtn = new JButton("Refresh");
         JButton cancelBtn = new JButton("Cancel Selected");
         JPanel actions = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
         actions.setOpaque(false);
+        actions.add(loader.getIndicator());
         actions.add(refreshBtn);
         actions.add(cancelBtn);
         panel.add(actions, BorderLayout.SOUTH);
 
+        String patientId = currentPatient.getUserId();
         Runnable reload = () -> {
-            model.setRowCount(0);
-
-            java.util.Map<String, String> serviceNameById = new java.util.HashMap<>();
-            for (Service s : servicesService.getAllServices(false)) {
-                serviceNameById.put(s.getServiceId(), s.getServiceName());
-            }
-
-            java.util.Map<String, String> doctorNameById = new java.util.HashMap<>();
-            for (Doctor d : doctorService.getAllDoctors(false)) {
-                doctorNameById.put(d.getDoctorId(), d.getName());
-            }
+            long changes = appointmentsChanges;
+            appointmentsLoadingFrom = changes;
+            loader.load(() -> new AppointmentTableModel.Snapshot(
+                    appointmentService.findByPatientId(patientId),
+                    referenceData.getServiceNames(() -> servicesService.getAllServices(false)),
+                    doctorService.getDoctorNames()), snapshot -> {
+                model.setAppointments(snapshot);
+                filters.refreshDoctors();
+                if (changes == appointmentsChanges) {
+                    appointmentsStale = false;
+                }
+            });
+        };
 
-            for (Appointment a : appointmentService.findByPatientId(currentPatient.getUserId())) {
-                String dt = a.getAppointmentDateTime() != null ? a.getAppointmentDateTime().toString() : "";
-                model.addRow(new Object[] {
-                        a.getAppointmentId(),
-                        serviceNameById.getOrDefault(a.getServiceId(), a.getServiceId()),
-                        doctorNameById.getOrDefault(a.getDoctorId(), a.getDoctorId()),
-                        dt,
-                        a.getStatus()
-                });
+        // Approvals and other changes made elsewhere arrive while the view is cached,
+        // shown or not. Only upserts: a row gone from the hot table was archived and
+        // stays in the history. This instance's own writes are not in the feed.
+        feed.subscribe((ids, rows) -> {
+            for (Appointment a : rows) {
+                if (patientId.equals(a.getPatientId())) {
+                    model.upsert(a);
+                }
             }
-        };
+            filters.refreshDoctors();
+        }, reload);
 
         refreshBtn.addActionListener(e -> reload.run());
 
+        // Separate from loader so the write never cancels, or is cancelled by, a reload
+        AsyncLoader cancelLoader = new AsyncLoader();
+        actions.add(cancelLoader.getIndicator(), 1);
+
         cancelBtn.addActionListener(e -> {
+            if (cancelLoader.isLoading()) {
+                return;
+            }
             int row = table.getSelectedRow();
             if (row < 0) {
                 JOptionPane.showMessageDialog(this, "Select an appointment first.", "Validation", JOptionPane.WARNING_MESSAGE);
                 return;
             }
 
-            String appointmentId = (String) model.getValueAt(row, 0);
-            String status = (String) model.getValueAt(row, 4);
-            if (status != null && status.equalsIgnoreCase("CANCELLED")) {
+            Appointment target = model.getAppointment(table.convertRowIndexToModel(row));
+            String appointmentId = target.getAppointmentId();
+            AppointmentStatus status = target.getStatus();
+            if (status == AppointmentStatus.CANCELLED) {
                 JOptionPane.showMessageDialog(this, "Appointment is already cancelled.", "Info", JOptionPane.INFORMATION_MESSAGE);
                 return;
             }
+            if (status != null && !status.canTransitionTo(AppointmentStatus.CANCELLED)) {
+                JOptionPane.showMessageDialog(this, "A " + status + " appointment cannot be cancelled.", "Info", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
 
             int confirm = JOptionPane.showConfirmDialog(this, "Cancel selected appointment?", "Confirm", JOptionPane.YES_NO_OPTION);
             if (confirm != JOptionPane.YES_OPTION) {
                 return;
             }
 
-            Appointment target = null;
-            for (Appointment a : appointmentService.findByPatientId(currentPatient.getUserId())) {
-                if (appointmentId != null && appointmentId.equals(a.getAppointmentId())) {
-                    target = a;
-                    break;
+            Patient patient = currentPatient;
+            cancelLoader.load(() -> appointmentService.cancelAppointment(target, patient), ok -> {
+                if (ok) {
+                    notificationService.sendCancellationNotice(patient.getEmail(), "Appointment ID: " + appointmentId);
+                    model.updateStatus(appointmentId, AppointmentStatus.CANCELLED);
+                } else {
+                    JOptionPane.showMessageDialog(this, "Failed to cancel appointment.", "Error", JOptionPane.ERROR_MESSAGE);
                 }
-            }
-
-            if (target == null) {
-                JOptionPane.showMessageDialog(this, "Appointment not found.", "Error", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
+            });
+        });
 
-            boolean ok = appointmentService.cancelAppointment(target, currentPatient);
-            if (ok) {
-                notificationService.sendCancellationNotice(currentPatient.getEmail(), "Appointment ID: " + appointmentId);
+        CachedView view = new CachedView(panel);
+        view.onShow = () -> {
+            // A load still running from before the latest booking would miss it
+            if (appointmentsStale && !(loader.isLoading() && appointmentsLoadingFrom == appointmentsChanges)) {
                 reload.run();
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to cancel appointment.", "Error", JOptionPane.ERROR_MESSAGE);
             }
-        });
-
-        SwingUtilities.invokeLater(reload);
-        return panel;
+        };
+        return view;
     }
 
     private JPanel createBookForFamilyPanel() {
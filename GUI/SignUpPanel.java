@@ -3,15 +3,14 @@ package GUI;
 import models.Patient;
 import services.UserServicesDB;
 import utils.FontLoader;
+import utils.TextureCache;
 import utils.ValidationUtils;
 
 import javax.swing.*;
 import javax.swing.text.JTextComponent;
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.Random;
 
 public class SignUpPanel extends JPanel {
 
@@ -45,15 +44,11 @@ public class SignUpPanel extends JPanel {
     private static final Color BUTTON_BG = new Color(140, 100, 80);
     private static final Color BUTTON_HOVER = new Color(160, 120, 90);
 
-    private BufferedImage texture;
-    private Random random = new Random();
-    private boolean textureInitialized = false;
-
     private JPanel contentPanel;
 
     public SignUpPanel(MainFrame mainFrame) {
         this.mainFrame = mainFrame;
-        this.userService = new UserServicesDB();
+        this.userService = mainFrame.getServices().getUserAccounts();
 
         setLayout(new BorderLayout());
         setBackground(BACKGROUND_COLOR);
@@ -65,38 +60,7 @@ public class SignUpPanel extends JPanel {
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-
-        if (!textureInitialized || texture == null || texture.getWidth() != getWidth() || texture.getHeight() != getHeight()) {
-            createTexture(getWidth(), getHeight());
-        }
-
-        if (texture != null) {
-            Graphics2D g2d = (Graphics2D) g;
-            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.05f));
-            g2d.drawImage(texture, 0, 0, null);
-            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1f));
-        }
-    }
-
-    private void createTexture(int width, int height) {
-        if (width <= 0 || height <= 0) return;
-
-        texture = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = texture.createGraphics();
-
-        g2d.setColor(new Color(255, 250, 245, 10));
-        g2d.fillRect(0, 0, width, height);
-
-        g2d.setColor(new Color(200, 180, 160, 3));
-        for (int i = 0; i < width * height / 200; i++) {
-            int x = random.nextInt(width);
-            int y = random.nextInt(height);
-            int size = random.nextInt(2) + 1;
-            g2d.fillOval(x, y, size, size);
-        }
-
-        g2d.dispose();
-        textureInitialized = true;
+        TextureCache.paint(g, TextureCache.Texture.GRAIN, getWidth(), getHeight(), 0.05f);
     }
 
     private void initializeUI() {
@@ -281,6 +245,10 @@ public class SignUpPanel extends JPanel {
         Patient p = userService.registerPatient(fullName, email, phone, password, address, dob, role);
 
         if (p != null) {
+            // The directory mirrors role = 'PATIENT' only; doctors and staff sign up here too
+            if ("Patient".equalsIgnoreCase(role)) {
+                mainFrame.getServices().getPatientDirectory().add(p);
+            }
             JOptionPane.showMessageDialog(this, "Account created successfully!");
             mainFrame.showLoginScreen();
         } else {
@@ -323,7 +291,6 @@ public class SignUpPanel extends JPanel {
         addComponentListener(new java.awt.event.ComponentAdapter() {
             @Override
             public void componentResized(java.awt.event.ComponentEvent e) {
-                textureInitialized = false;
                 revalidate();
                 repaint();
             }
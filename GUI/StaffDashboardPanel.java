@@ -1,11 +1,14 @@
 package GUI;
 
 import models.Appointment;
-import models.Doctor;
+import models.AppointmentStatus;
 import models.Service;
 import models.Staff;
 import services.AppointmentServiceDB;
+import services.ChangeLog;
 import services.DoctorServiceDB;
+import services.ReferenceDataCache;
+import services.ServiceRegistry;
 import services.ServicesServiceDB;
 import services.UserService;
 import utils.ColorScheme;
@@ -14,16 +17,25 @@ import utils.FontLoader;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public class StaffDashboardPanel extends JPanel {
 
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_PAGES = 20;
+
     private MainFrame mainFrame;
     private UserService userService;
     private AppointmentServiceDB appointmentService;
     private DoctorServiceDB doctorService;
     private ServicesServiceDB servicesService;
+    private final ReferenceDataCache referenceData = ReferenceDataCache.shared();
+    private final AsyncLoader loader = new AsyncLoader();
+    // Separate from loader so a status write never cancels, or is cancelled by, a table load
+    private final AsyncLoader statusUpdater = new AsyncLoader();
+    private final AppointmentFeed feed;
     private Staff currentStaff;
 
     // Sidebar buttons
@@ -32,10 +44,12 @@ public class StaffDashboardPanel extends JPanel {
     // ---------------- CONSTRUCTOR ----------------
     public StaffDashboardPanel(MainFrame mainFrame, Staff staff) {
         this.mainFrame = mainFrame;
-        this.userService = mainFrame.getUserService();
-        this.appointmentService = new AppointmentServiceDB();
-        this.doctorService = new DoctorServiceDB();
-        this.servicesService = new ServicesServiceDB();
+        ServiceRegistry services = mainFrame.getServices();
+        this.userService = services.getUserService();
+        this.appointmentService = services.getAppointmentService();
+        this.doctorService = services.getDoctorService();
+        this.servicesService = services.getServicesService();
+        this.feed = new AppointmentFeed(services.getChangeLogPoller(), services.getAppointmentService());
         this.currentStaff = staff;
         initializeUI();
     }
@@ -85,6 +99,8 @@ public class StaffDashboardPanel extends JPanel {
     }
 
     private void showDashboard(JPanel mainContent) {
+        loader.cancel();
+        feed.unsubscribe();
         mainContent.removeAll();
         showHeader(mainContent, "Staff Dashboard");
 
@@ -111,16 +127,46 @@ public class StaffDashboardPanel extends JPanel {
     }
 
     private void showAppointments(JPanel mainContent) {
+        loader.cancel();
+        feed.unsubscribe();
         mainContent.removeAll();
         showHeader(mainContent, "Appointments");
 
+        // The full history can run to hundreds of thousands of rows, so only visible pages are loaded
         String[] columns = { "Appointment ID", "Patient", "Service", "Doctor", "Date/Time", "Status" };
-        DefaultTableModel model = new DefaultTableModel(columns, 0) {
+        PagedTableModel.PageSource<Object[]> source = new PagedTableModel.PageSource<>() {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
+            public int count() {
+                return appointmentService.countAll();
+            }
+
+            @Override
+            public List<Object[]> fetch(int offset, int limit) {
+                Map<String, String> serviceNameById =
+                        referenceData.getServiceNames(() -> servicesService.getAllServices(false));
+                Map<String, String> doctorNameById = doctorService.getDoctorNames();
+
+                List<Appointment> page = appointmentService.findPage(offset, limit);
+                if (page == null) {
+                    return null;
+                }
+                List<Object[]> rows = new ArrayList<>();
+                for (Appointment a : page) {
+                    String dt = a.getAppointmentDateTime() != null ? a.getAppointmentDateTime().toString() : "";
+                    rows.add(new Object[] {
+                            a.getAppointmentId(),
+                            a.getPatientName(),
+                            serviceNameById.getOrDefault(a.getServiceId(), a.getServiceId()),
+                            doctorNameById.getOrDefault(a.getDoctorId(), a.getDoctorId()),
+                            dt,
+                            a.getStatus()
+                    });
+                }
+                return rows;
             }
         };
+        PagedTableModel<Object[]> model = new PagedTableModel<>(columns, source, (row, column) -> row[column],
+                PAGE_SIZE, MAX_PAGES);
 
         JTable table = new JTable(model);
         JScrollPane scroll = new JScrollPane(table);
@@ -133,50 +179,59 @@ public class StaffDashboardPanel extends JPanel {
 
         JPanel actions = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
         actions.setOpaque(false);
+        actions.add(loader.getIndicator());
+        actions.add(statusUpdater.getIndicator());
         actions.add(refreshBtn);
         actions.add(approveBtn);
         actions.add(completeBtn);
         actions.add(cancelBtn);
         mainContent.add(actions, BorderLayout.SOUTH);
 
-        Runnable reload = () -> {
-            model.setRowCount(0);
-
-            Map<String, String> serviceNameById = new HashMap<>();
-            for (Service s : servicesService.getAllServices(false)) {
-                serviceNameById.put(s.getServiceId(), s.getServiceName());
-            }
-
-            Map<String, String> doctorNameById = new HashMap<>();
-            for (Doctor d : doctorService.getAllDoctors(false)) {
-                doctorNameById.put(d.getDoctorId(), d.getName());
+        Runnable reload = () -> loader.load(source::count, model::reset);
+
+        // Changed rows already on screen are patched in place. Anything else may be
+        // a new or archived booking that shifts the rows, so recount and start over
+        // only if the count moved.
+        feed.subscribe((ids, rows) -> {
+            boolean recount = ids.size() > rows.size();
+            for (Appointment a : rows) {
+                int at = model.findLoaded(r -> a.getAppointmentId().equals(r[0]));
+                if (at < 0) {
+                    recount = true;
+                    continue;
+                }
+                Object[] updated = model.getLoadedRow(at).clone();
+                updated[1] = a.getPatientName();
+                updated[4] = a.getAppointmentDateTime() != null ? a.getAppointmentDateTime().toString() : "";
+                updated[5] = a.getStatus();
+                model.replaceLoadedRow(at, updated);
             }
-
-            for (Appointment a : appointmentService.findAll()) {
-                String dt = a.getAppointmentDateTime() != null ? a.getAppointmentDateTime().toString() : "";
-                model.addRow(new Object[] {
-                        a.getAppointmentId(),
-                        a.getPatientName(),
-                        serviceNameById.getOrDefault(a.getServiceId(), a.getServiceId()),
-                        doctorNameById.getOrDefault(a.getDoctorId(), a.getDoctorId()),
-                        dt,
-                        a.getStatus()
+            if (recount && !loader.isLoading()) {
+                loader.load(source::count, count -> {
+                    if (count != model.getRowCount()) {
+                        model.reset(count);
+                    }
                 });
             }
-        };
+        }, reload);
 
         refreshBtn.addActionListener(e -> reload.run());
-        approveBtn.addActionListener(e -> updateSelectedAppointmentStatus(table, model, "APPROVED", reload));
-        completeBtn.addActionListener(e -> updateSelectedAppointmentStatus(table, model, "COMPLETED", reload));
-        cancelBtn.addActionListener(e -> updateSelectedAppointmentStatus(table, model, "CANCELLED", reload));
+        approveBtn.addActionListener(e -> updateSelectedAppointmentStatus(table, model, AppointmentStatus.APPROVED, reload));
+        completeBtn.addActionListener(e -> updateSelectedAppointmentStatus(table, model, AppointmentStatus.COMPLETED, reload));
+        cancelBtn.addActionListener(e -> updateSelectedAppointmentStatus(table, model, AppointmentStatus.CANCELLED, reload));
 
-        SwingUtilities.invokeLater(reload);
+        reload.run();
 
         revalidate();
         repaint();
     }
 
-    private void updateSelectedAppointmentStatus(JTable table, DefaultTableModel model, String status, Runnable reload) {
+    private void updateSelectedAppointmentStatus(JTable table, PagedTableModel<Object[]> model,
+                                                 AppointmentStatus status, Runnable reload) {
+        if (statusUpdater.isLoading()) {
+            // One write at a time; its indicator is showing
+            return;
+        }
         int row = table.getSelectedRow();
         if (row < 0) {
             JOptionPane.showMessageDialog(this, "Select an appointment first.", "Validation", JOptionPane.WARNING_MESSAGE);
@@ -184,20 +239,50 @@ public class StaffDashboardPanel extends JPanel {
         }
 
         String appointmentId = (String) model.getValueAt(row, 0);
+        AppointmentStatus current = (AppointmentStatus) model.getValueAt(row, 5);
+        if (appointmentId == null) {
+            // Row still loading
+            return;
+        }
+        if (current != null && !current.canTransitionTo(status)) {
+            JOptionPane.showMessageDialog(this, "A " + current + " appointment cannot be set to " + status + ".",
+                    "Validation", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
         int confirm = JOptionPane.showConfirmDialog(this, "Set selected appointment to " + status + "?", "Confirm", JOptionPane.YES_NO_OPTION);
         if (confirm != JOptionPane.YES_OPTION) {
             return;
         }
 
-        boolean ok = appointmentService.updateAppointmentStatus(appointmentId, status);
-        if (ok) {
-            reload.run();
-        } else {
-            JOptionPane.showMessageDialog(this, "Failed to update appointment.", "Error", JOptionPane.ERROR_MESSAGE);
+        statusUpdater.load(() -> appointmentService.updateAppointmentStatus(appointmentId, status), ok -> {
+            if (!ok) {
+                JOptionPane.showMessageDialog(this, "Failed to update appointment.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            // Repaint just this row, found again since rows may have moved during the write;
+            // only fall back to a reload if its page was evicted meanwhile
+            int at = model.findLoaded(r -> appointmentId.equals(r[0]));
+            if (at >= 0) {
+                Object[] updated = model.getLoadedRow(at).clone();
+                updated[5] = status;
+                model.replaceLoadedRow(at, updated);
+            } else {
+                reload.run();
+            }
+        });
+    }
+
+    private static void fillTable(DefaultTableModel model, List<Object[]> rows) {
+        model.setRowCount(0);
+        for (Object[] row : rows) {
+            model.addRow(row);
         }
     }
 
     private void showServices(JPanel mainContent) {
+        loader.cancel();
+        feed.unsubscribe();
         mainContent.removeAll();
         showHeader(mainContent, "Services");
 
@@ -219,15 +304,16 @@ public class StaffDashboardPanel extends JPanel {
 
         JPanel actions = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
         actions.setOpaque(false);
+        actions.add(loader.getIndicator());
         actions.add(refreshBtn);
         actions.add(addBtn);
         actions.add(toggleBtn);
         mainContent.add(actions, BorderLayout.SOUTH);
 
-        Runnable reload = () -> {
-            model.setRowCount(0);
-            for (Service s : servicesService.getAllServices(false)) {
-                model.addRow(new Object[] {
+        Runnable reload = () -> loader.load(() -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (Service s : referenceData.getServices(false, () -> servicesService.getAllServices(false))) {
+                rows.add(new Object[] {
                         s.getServiceId(),
                         s.getServiceName(),
                         s.getPrice(),
@@ -235,7 +321,8 @@ public class StaffDashboardPanel extends JPanel {
                         s.isActive()
                 });
             }
-        };
+            return rows;
+        }, rows -> fillTable(model, rows));
 
         refreshBtn.addActionListener(e -> reload.run());
 
@@ -280,6 +367,8 @@ public class StaffDashboardPanel extends JPanel {
 
             Service created = servicesService.addService(name, desc, price, duration, prep);
             if (created != null) {
+                referenceData.invalidateServices();
+                ChangeLog.record(ChangeLog.SERVICE, created.getServiceId());
                 reload.run();
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to add service.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -296,19 +385,23 @@ public class StaffDashboardPanel extends JPanel {
             boolean active = Boolean.TRUE.equals(model.getValueAt(row, 4));
             boolean ok = servicesService.toggleServiceStatus(serviceId, !active);
             if (ok) {
+                referenceData.invalidateServices();
+                ChangeLog.record(ChangeLog.SERVICE, serviceId);
                 reload.run();
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to update service.", "Error", JOptionPane.ERROR_MESSAGE);
             }
         });
 
-        SwingUtilities.invokeLater(reload);
+        reload.run();
 
         revalidate();
         repaint();
     }
 
     private void showProfile(JPanel mainContent) {
+        loader.cancel();
+        feed.unsubscribe();
         mainContent.removeAll();
         showHeader(mainContent, "Staff Profile");
 
@@ -365,6 +458,8 @@ public class StaffDashboardPanel extends JPanel {
         logoutButton = createSidebarButton("Logout");
 
         logoutButton.addActionListener(e -> {
+            loader.cancel();
+            feed.unsubscribe();
             userService.logout();
             mainFrame.showWelcomeScreen();
         });
@@ -1,10 +1,11 @@
 package GUI;
 
 import utils.FontLoader;
+import utils.ResponsiveTypography;
+import utils.TextureCache;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.util.Random;
 
 public class WelcomePanel extends JPanel {
@@ -22,16 +23,12 @@ public class WelcomePanel extends JPanel {
     private static final Color DEEPER_ACCENT = new Color(140, 100, 80); // Even darker accent for important elements
     private static final Color SKIN_SHADOW = new Color(220, 200, 185); // For subtle shadows
     
-    // Texture-related variables
-    private BufferedImage skinTexture;
     private Random random = new Random();
-    private boolean textureInitialized = false;
 
-    // Responsive thresholds
+    // Responsive thresholds; font sizes follow ResponsiveTypography.Breakpoint
     private static final int XL_SCREEN = 1200;
     private static final int LG_SCREEN = 900;
     private static final int MD_SCREEN = 768;
-    private static final int SM_SCREEN = 480;
 
     // Components
     private JPanel contentPanel;
@@ -46,6 +43,8 @@ public class WelcomePanel extends JPanel {
     private JLabel ctaTitleLabel;
     private JLabel ctaSubtitleLabel;
 
+    private final ResponsiveTypography typography = new ResponsiveTypography();
+
     public WelcomePanel(MainFrame mainFrame) {
         this.mainFrame = mainFrame;
         setBackground(SECONDARY_COLOR);
@@ -56,58 +55,9 @@ public class WelcomePanel extends JPanel {
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        
-        // Create skin texture effect
-        if (!textureInitialized || skinTexture == null || 
-            skinTexture.getWidth() != getWidth() || 
-            skinTexture.getHeight() != getHeight()) {
-            createSkinTexture(getWidth(), getHeight());
-        }
-        
-        // Draw the texture
-        if (skinTexture != null) {
-            Graphics2D g2d = (Graphics2D) g;
-            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.1f));
-            g2d.drawImage(skinTexture, 0, 0, null);
-            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
-        }
-    }
 
-    private void createSkinTexture(int width, int height) {
-        if (width <= 0 || height <= 0) return;
-        
-        skinTexture = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = skinTexture.createGraphics();
-        
-        // Create subtle skin texture with pores and fine lines
-        g2d.setColor(new Color(255, 250, 245, 10));
-        g2d.fillRect(0, 0, width, height);
-        
-        // Add subtle pore-like dots
-        g2d.setColor(new Color(200, 180, 160, 3));
-        for (int i = 0; i < width * height / 200; i++) {
-            int x = random.nextInt(width);
-            int y = random.nextInt(height);
-            int size = random.nextInt(2) + 1;
-            g2d.fillOval(x, y, size, size);
-        }
-        
-        // Add fine lines (like skin texture)
-        g2d.setColor(new Color(190, 170, 150, 2));
-        for (int i = 0; i < 50; i++) {
-            int x1 = random.nextInt(width);
-            int y1 = random.nextInt(height);
-            int length = random.nextInt(50) + 10;
-            int angle = random.nextInt(180);
-            int x2 = x1 + (int)(length * Math.cos(Math.toRadians(angle)));
-            int y2 = y1 + (int)(length * Math.sin(Math.toRadians(angle)));
-            
-            g2d.setStroke(new BasicStroke(0.5f));
-            g2d.drawLine(x1, y1, x2, y2);
-        }
-        
-        g2d.dispose();
-        textureInitialized = true;
+        // Skin texture effect, tiled from one shared image
+        TextureCache.paint(g, TextureCache.Texture.SKIN, getWidth(), getHeight(), 0.1f);
     }
 
     private void initializeUI() {
@@ -159,13 +109,15 @@ public class WelcomePanel extends JPanel {
         scrollPane.setVerticalScrollBarPolicy(ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED);
 
         add(scrollPane, BorderLayout.CENTER);
+
+        // Every section is built; their fonts are the XL sizes
+        typography.registerTree(contentPanel);
     }
 
     private void setupResponsiveBehavior() {
         addComponentListener(new java.awt.event.ComponentAdapter() {
             @Override
             public void componentResized(java.awt.event.ComponentEvent e) {
-                textureInitialized = false; // Force texture recreation
                 updateResponsiveLayout();
             }
         });
@@ -174,9 +126,11 @@ public class WelcomePanel extends JPanel {
     private void updateResponsiveLayout() {
         int width = getWidth();
 
-        // Update all sections based on screen size
+        // Sizes, fonts and columns only change when a breakpoint is crossed
+        if (!typography.apply(width)) {
+            return;
+        }
         updateSectionSizes(width);
-        updateFontSizes(width);
         updateLayoutColumns(width);
 
         // Revalidate everything
@@ -197,51 +151,6 @@ public class WelcomePanel extends JPanel {
         }
     }
 
-    private void updateFontSizes(int width) {
-        float scale = getFontScale(width);
-
-        // Update all label fonts
-        updateComponentFontRecursive(contentPanel, scale);
-    }
-
-    private void updateComponentFontRecursive(Container container, float scale) {
-        for (Component comp : container.getComponents()) {
-            if (comp instanceof JLabel) {
-                JLabel label = (JLabel) comp;
-                Font font = label.getFont();
-                if (font != null) {
-                    label.setFont(font.deriveFont(font.getSize() * scale));
-                }
-            } else if (comp instanceof JButton) {
-                JButton button = (JButton) comp;
-                Font font = button.getFont();
-                if (font != null) {
-                    button.setFont(font.deriveFont(font.getSize() * scale));
-                }
-            } else if (comp instanceof JTextArea) {
-                JTextArea area = (JTextArea) comp;
-                Font font = area.getFont();
-                if (font != null) {
-                    area.setFont(font.deriveFont(font.getSize() * scale));
-                }
-            } else if (comp instanceof Container) {
-                updateComponentFontRecursive((Container) comp, scale);
-            }
-        }
-    }
-
-    private float getFontScale(int width) {
-        if (width > XL_SCREEN)
-            return 1.0f;
-        if (width > LG_SCREEN)
-            return 0.95f;
-        if (width > MD_SCREEN)
-            return 0.9f;
-        if (width > SM_SCREEN)
-            return 0.85f;
-        return 0.8f;
-    }
-
     private void updateLayoutColumns(int width) {
         // Update stats layout
         if (statsPanel != null) {
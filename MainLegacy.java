@@ -1,5 +1,6 @@
 import db.DataBaseConnection;
 import GUI.MainFrame;
+import services.ServiceRegistry;
 import utils.Config;
 import utils.Logger;
 
@@ -27,6 +28,11 @@ public class MainLegacy {
             Logger.logError("Failed to initialize database", e);
         }
 
+        // The frame's dashboards rely on the registry's background services
+        ServiceRegistry services = new ServiceRegistry();
+        services.start();
+        services.warmUp();
+
         // Set skin-friendly look and feel
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -37,12 +43,13 @@ public class MainLegacy {
 
         // Run the application
         SwingUtilities.invokeLater(() -> {
-            MainFrame mainFrame = new MainFrame();
+            MainFrame mainFrame = new MainFrame(services);
             mainFrame.setVisible(true);
             Logger.log("DermAppoint system started");
 
             // Add shutdown hook to close database connection
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                services.shutdown();
                 DataBaseConnection.closeConnection();
                 Logger.log("Application shutdown completed");
             }));
@@ -6,4 +6,13 @@ public interface IAppointmentLimiter {
     boolean isSlotAvailable(LocalDate date, String timeSlot);
     int getAvailableSlots(LocalDate date, String timeSlot);
     boolean checkDailyLimit(LocalDate date, String timeSlot);
+
+    // Take one unit of capacity for a booking that is about to be made
+    boolean tryReserve(LocalDate date, String timeSlot);
+    // Give back a reservation whose booking was never made
+    void release(LocalDate date, String timeSlot);
+    // The reserved booking was stored
+    void confirm(LocalDate date, String timeSlot);
+    // A stored booking was cancelled
+    void cancelBooking(LocalDate date, String timeSlot);
 }
\ No newline at end of file
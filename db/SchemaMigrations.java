@@ -0,0 +1,206 @@
+package db;
+
+import models.AppointmentStatus;
+import utils.Logger;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumSet;
+
+/**
+ * Additive schema changes applied on top of the base schema created by
+ * {@link DataBaseConnection#initializeDatabase()}. Every step is idempotent
+ * so it is safe to run on each start-up.
+ */
+public final class SchemaMigrations {
+
+    public static final String CHANGE_COLUMN = "updated_at";
+
+    private static final String[] TRACKED_TABLES = { "users", "doctors", "services", "appointments" };
+
+    private SchemaMigrations() {
+    }
+
+    public static void apply() {
+        try (Connection conn = DataBaseConnection.getConnection()) {
+            for (String table : TRACKED_TABLES) {
+                try {
+                    ensureChangeTracking(conn, table);
+                } catch (SQLException e) {
+                    Logger.logError("Failed to add change tracking to table: " + table, e);
+                }
+            }
+            ensureAppointmentArchive(conn);
+            ensureCapacityLeases(conn);
+            ensureChangeLog(conn);
+            ensureAppointmentSlotIndex(conn);
+            for (String table : new String[] { "appointments", "appointments_archive" }) {
+                try {
+                    ensureStatusEnum(conn, table);
+                } catch (SQLException e) {
+                    Logger.logError("Failed to convert status column of table: " + table, e);
+                }
+            }
+        } catch (SQLException e) {
+            Logger.logError("Failed to apply schema migrations", e);
+        }
+    }
+
+    /**
+     * Adds an auto-maintained row change timestamp used by incremental backups.
+     */
+    static void ensureChangeTracking(Connection conn, String table) throws SQLException {
+        if (!tableExists(conn, table) || hasColumn(conn, table, CHANGE_COLUMN)) {
+            return;
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE " + table
+                    + " ADD COLUMN " + CHANGE_COLUMN
+                    + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,"
+                    + " ADD INDEX idx_" + table + "_" + CHANGE_COLUMN + " (" + CHANGE_COLUMN + ")");
+            Logger.log("Change tracking enabled for table: " + table);
+        }
+    }
+
+    /**
+     * Cold store for old completed and cancelled appointments, same layout as the hot table.
+     * Created after change tracking so it inherits updated_at.
+     */
+    static void ensureAppointmentArchive(Connection conn) throws SQLException {
+        if (tableExists(conn, "appointments_archive") || !tableExists(conn, "appointments")) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE appointments_archive LIKE appointments");
+            Logger.log("Created table: appointments_archive");
+        }
+    }
+
+    /**
+     * Lock rows and token leases for coordinating booking caps across instances.
+     */
+    static void ensureCapacityLeases(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (!tableExists(conn, "capacity_slots")) {
+                stmt.executeUpdate("CREATE TABLE capacity_slots ("
+                        + " slot_date DATE NOT NULL,"
+                        + " half_day ENUM('AM','PM') NOT NULL,"
+                        + " PRIMARY KEY (slot_date, half_day))");
+                Logger.log("Created table: capacity_slots");
+            }
+            if (!tableExists(conn, "capacity_leases")) {
+                stmt.executeUpdate("CREATE TABLE capacity_leases ("
+                        + " lease_id VARCHAR(36) NOT NULL PRIMARY KEY,"
+                        + " node_id VARCHAR(128) NOT NULL,"
+                        + " slot_date DATE NOT NULL,"
+                        + " half_day ENUM('AM','PM') NOT NULL,"
+                        + " tokens INT NOT NULL,"
+                        + " expires_at TIMESTAMP(3) NOT NULL,"
+                        + " INDEX idx_capacity_leases_slot (slot_date, half_day, expires_at))");
+                Logger.log("Created table: capacity_leases");
+            }
+        }
+    }
+
+    /**
+     * Ordered log of writes to cached entities, read by other instances to evict stale copies.
+     */
+    static void ensureChangeLog(Connection conn) throws SQLException {
+        if (tableExists(conn, "change_log")) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE change_log ("
+                    + " version BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,"
+                    + " entity_type VARCHAR(16) NOT NULL,"
+                    + " entity_id VARCHAR(64) NOT NULL,"
+                    + " scope VARCHAR(64) NULL,"
+                    + " node_id VARCHAR(128) NOT NULL,"
+                    + " changed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),"
+                    + " INDEX idx_change_log_changed_at (changed_at))");
+            Logger.log("Created table: change_log");
+        }
+    }
+
+    /**
+     * Secondary index in booking order, used for paging the appointment list and
+     * counting a day's bookings without touching full rows.
+     */
+    static void ensureAppointmentSlotIndex(Connection conn) throws SQLException {
+        if (!tableExists(conn, "appointments") || hasIndex(conn, "appointments", "idx_appointments_slot")) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE appointments"
+                    + " ADD INDEX idx_appointments_slot (appointment_date, appointment_time)");
+            Logger.log("Added slot index to table: appointments");
+        }
+    }
+
+    /**
+     * Stores appointment status as a one-byte ENUM in {@link AppointmentStatus} order
+     * instead of free text. Legacy values are normalised first so the conversion
+     * cannot fail on case or whitespace differences.
+     */
+    static void ensureStatusEnum(Connection conn, String table) throws SQLException {
+        if (!tableExists(conn, table) || !hasColumn(conn, table, "status")) {
+            return;
+        }
+
+        String typeSql = "SELECT DATA_TYPE FROM information_schema.COLUMNS"
+                + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = 'status'";
+        try (PreparedStatement pstmt = conn.prepareStatement(typeSql)) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next() && "enum".equalsIgnoreCase(rs.getString(1))) {
+                    return;
+                }
+            }
+        }
+
+        String known = AppointmentStatus.sqlList(EnumSet.allOf(AppointmentStatus.class));
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE " + table + " SET status = UPPER(TRIM(status))"
+                    + " WHERE status <> UPPER(TRIM(status))");
+            int unknown = stmt.executeUpdate("UPDATE " + table + " SET status = '"
+                    + AppointmentStatus.PENDING.name() + "' WHERE status IS NULL OR status NOT IN (" + known + ")");
+            if (unknown > 0) {
+                Logger.log("Reset " + unknown + " unrecognised appointment statuses to PENDING in " + table);
+            }
+            stmt.executeUpdate("ALTER TABLE " + table + " MODIFY COLUMN status "
+                    + AppointmentStatus.sqlEnumDefinition() + " NOT NULL DEFAULT '" + AppointmentStatus.PENDING.name() + "'");
+            Logger.log("Converted status column to ENUM in table: " + table);
+        }
+    }
+
+    public static boolean tableExists(Connection conn, String table) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getTables(conn.getCatalog(), null, table, new String[] { "TABLE" })) {
+            return rs.next();
+        }
+    }
+
+    public static boolean hasIndex(Connection conn, String table, String index) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getIndexInfo(conn.getCatalog(), null, table, false, true)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getColumns(conn.getCatalog(), null, table, column)) {
+            return rs.next();
+        }
+    }
+}
@@ -10,7 +10,7 @@ public class Appointment {
     private String serviceId;
     private LocalDateTime appointmentDateTime;
     private String doctorId;
-    private String status;
+    private AppointmentStatus status;
 
     private boolean forAnotherPerson;
     private String otherPersonName;
@@ -37,8 +37,8 @@ public class Appointment {
     public String getDoctorId() { return doctorId; }
     public void setDoctorId(String doctorId) { this.doctorId = doctorId; }
 
-    public String getStatus() { return status; }
-    public void setStatus(String status) { this.status = status; }
+    public AppointmentStatus getStatus() { return status; }
+    public void setStatus(AppointmentStatus status) { this.status = status; }
 
     public boolean isForAnotherPerson() { return forAnotherPerson; }
     public void setForAnotherPerson(boolean forAnotherPerson) { this.forAnotherPerson = forAnotherPerson; }
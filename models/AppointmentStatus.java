@@ -0,0 +1,114 @@
+package models;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Lifecycle of an appointment.
+ *
+ * Stored as a MySQL ENUM whose values are declared in this order, so
+ * {@link #getCode()} matches the one-byte index the database keeps per row.
+ *
+ * Allowed transitions:
+ *   PENDING   -> APPROVED, CANCELLED
+ *   APPROVED  -> COMPLETED, CANCELLED
+ *   COMPLETED and CANCELLED are final
+ */
+public enum AppointmentStatus {
+    PENDING(1),
+    APPROVED(2),
+    COMPLETED(3),
+    CANCELLED(4);
+
+    private static final AppointmentStatus[] BY_CODE = new AppointmentStatus[values().length + 1];
+
+    static {
+        for (AppointmentStatus s : values()) {
+            BY_CODE[s.code] = s;
+        }
+        PENDING.next = EnumSet.of(APPROVED, CANCELLED);
+        APPROVED.next = EnumSet.of(COMPLETED, CANCELLED);
+        COMPLETED.next = EnumSet.noneOf(AppointmentStatus.class);
+        CANCELLED.next = EnumSet.noneOf(AppointmentStatus.class);
+        for (AppointmentStatus s : values()) {
+            s.previous = EnumSet.noneOf(AppointmentStatus.class);
+        }
+        for (AppointmentStatus from : values()) {
+            for (AppointmentStatus to : from.next) {
+                to.previous.add(from);
+            }
+        }
+    }
+
+    private final int code;
+    private EnumSet<AppointmentStatus> next;
+    private EnumSet<AppointmentStatus> previous;
+
+    AppointmentStatus(int code) {
+        this.code = code;
+    }
+
+    public int getCode() { return code; }
+
+    public boolean canTransitionTo(AppointmentStatus target) {
+        return target != null && next.contains(target);
+    }
+
+    /**
+     * Statuses this one can be reached from, used to guard conditional updates
+     */
+    public Set<AppointmentStatus> getPredecessors() {
+        return previous.clone();
+    }
+
+    /**
+     * Counts towards the patient's one active booking
+     */
+    public boolean isActive() {
+        return this == PENDING || this == APPROVED;
+    }
+
+    public boolean isFinal() {
+        return next.isEmpty();
+    }
+
+    public static AppointmentStatus fromCode(int code) {
+        if (code < 1 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("Unknown appointment status code: " + code);
+        }
+        return BY_CODE[code];
+    }
+
+    /**
+     * Lenient parse of a stored or user supplied value, or null if it is not a status
+     */
+    public static AppointmentStatus parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = value.trim().toUpperCase();
+        for (AppointmentStatus s : values()) {
+            if (s.name().equals(normalized)) {
+                return s;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Quoted, comma separated names for building SQL IN lists, e.g. 'PENDING','APPROVED'
+     */
+    public static String sqlList(Set<AppointmentStatus> statuses) {
+        return statuses.stream()
+                .map(s -> "'" + s.name() + "'")
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * Column definition for the status column, in code order
+     */
+    public static String sqlEnumDefinition() {
+        return "ENUM(" + sqlList(EnumSet.allOf(AppointmentStatus.class)) + ")";
+    }
+}
@@ -0,0 +1,142 @@
+package services;
+
+import db.DataBaseConnection;
+import db.SchemaMigrations;
+import models.AppointmentStatus;
+import utils.Config;
+import utils.Logger;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves COMPLETED and CANCELLED appointments older than
+ * {@link Config#ARCHIVE_AFTER_DAYS} from the hot appointments table into
+ * appointments_archive, one short transaction per batch. Booking and the
+ * dashboards then only touch the small set of upcoming and recent rows.
+ */
+public class AppointmentArchiver {
+
+    public static final String HOT_TABLE = "appointments";
+    public static final String ARCHIVE_TABLE = "appointments_archive";
+
+    private static final String FINAL_STATUSES =
+            AppointmentStatus.sqlList(EnumSet.of(AppointmentStatus.COMPLETED, AppointmentStatus.CANCELLED));
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Archive everything past the horizon, batch by batch
+     */
+    public int archiveOnce() {
+        LocalDate cutoff = LocalDate.now().minusDays(Config.ARCHIVE_AFTER_DAYS);
+        int total = 0;
+
+        try (Connection conn = DataBaseConnection.getConnection()) {
+            if (!SchemaMigrations.tableExists(conn, ARCHIVE_TABLE)) {
+                return 0;
+            }
+            boolean touchChangeColumn = SchemaMigrations.hasColumn(conn, ARCHIVE_TABLE, SchemaMigrations.CHANGE_COLUMN);
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                int moved;
+                do {
+                    moved = archiveBatch(conn, cutoff, Config.ARCHIVE_BATCH_SIZE, touchChangeColumn);
+                    total += moved;
+                } while (moved == Config.ARCHIVE_BATCH_SIZE);
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            Logger.logError("Failed to archive appointments", e);
+        }
+
+        if (total > 0) {
+            Logger.log("Archived " + total + " appointments older than " + cutoff);
+        }
+        return total;
+    }
+
+    private int archiveBatch(Connection conn, LocalDate cutoff, int batchSize, boolean touchChangeColumn)
+            throws SQLException {
+
+        List<String> ids = new ArrayList<>();
+        String select = "SELECT appointment_id FROM " + HOT_TABLE
+                + " WHERE status IN (" + FINAL_STATUSES + ") AND appointment_date < ?"
+                + " ORDER BY appointment_date LIMIT ? FOR UPDATE";
+
+        try {
+            try (PreparedStatement stmt = conn.prepareStatement(select)) {
+                stmt.setDate(1, Date.valueOf(cutoff));
+                stmt.setInt(2, batchSize);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getString(1));
+                    }
+                }
+            }
+            if (ids.isEmpty()) {
+                conn.commit();
+                return 0;
+            }
+
+            String in = " WHERE appointment_id IN (" + String.join(",", Collections.nCopies(ids.size(), "?")) + ")";
+            executeForIds(conn, "INSERT INTO " + ARCHIVE_TABLE + " SELECT * FROM " + HOT_TABLE + in, ids);
+            if (touchChangeColumn) {
+                // INSERT ... SELECT copies the old timestamp; bump it so incremental backups see the move
+                executeForIds(conn, "UPDATE " + ARCHIVE_TABLE + " SET " + SchemaMigrations.CHANGE_COLUMN
+                        + " = CURRENT_TIMESTAMP" + in, ids);
+            }
+            executeForIds(conn, "DELETE FROM " + HOT_TABLE + in, ids);
+            conn.commit();
+            return ids.size();
+
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    private static void executeForIds(Connection conn, String sql, List<String> ids) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setString(i + 1, ids.get(i));
+            }
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Run the archiver shortly after start-up and then once a day
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "appointment-archiver");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::archiveOnce, 1, TimeUnit.DAYS.toMinutes(1), TimeUnit.MINUTES);
+    }
+
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -2,24 +2,26 @@ package services;
 
 import UI.IAppointmentLimiter;
 import models.Appointment;
+import models.AppointmentStatus;
 import models.Patient;
 import utils.ValidationUtils;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AppointmentService implements IAppointmentLimiter {
 
     private Map<String, Appointment> appointments;
-    private Map<LocalDate, Map<String, Integer>> dailyAppointments;
+    private final ConcurrentAppointmentLimiter limiter;
 
     private static final int MAX_AM_SLOTS = 20;
     private static final int MAX_PM_SLOTS = 20;
 
     public AppointmentService() {
-        appointments = new HashMap<>();
-        dailyAppointments = new HashMap<>();
+        appointments = new ConcurrentHashMap<>();
+        limiter = new ConcurrentAppointmentLimiter(MAX_AM_SLOTS, MAX_PM_SLOTS);
     }
 
     public Appointment createAppointment(
@@ -31,11 +33,12 @@ public class AppointmentService implements IAppointmentLimiter {
 
         String timeSlot = getTimeSlot(dateTime);
 
-        if (!checkDailyLimit(dateTime.toLocalDate(), timeSlot)) {
+        if (!limiter.tryReserve(dateTime.toLocalDate(), timeSlot)) {
             throw new RuntimeException("Daily limit reached for this time slot");
         }
 
         if (patient.getActiveAppointments().size() >= 1) {
+            limiter.release(dateTime.toLocalDate(), timeSlot);
             throw new RuntimeException("Patient already has an active appointment");
         }
 
@@ -46,13 +49,11 @@ public class AppointmentService implements IAppointmentLimiter {
         appointment.setServiceId(serviceId);
         appointment.setAppointmentDateTime(dateTime);
         appointment.setDoctorId(doctorId);
-        appointment.setStatus("PENDING");
+        appointment.setStatus(AppointmentStatus.PENDING);
 
         appointments.put(appointment.getAppointmentId(), appointment);
         patient.getActiveAppointments().add(appointment);
 
-        updateDailyCount(dateTime.toLocalDate(), timeSlot, 1);
-
         return appointment;
     }
 
@@ -89,12 +90,7 @@ public class AppointmentService implements IAppointmentLimiter {
 
     @Override
     public int getAvailableSlots(LocalDate date, String timeSlot) {
-        Map<String, Integer> slots = dailyAppointments.getOrDefault(date, new HashMap<>());
-        int booked = slots.getOrDefault(timeSlot, 0);
-
-        return "AM".equals(timeSlot)
-                ? MAX_AM_SLOTS - booked
-                : MAX_PM_SLOTS - booked;
+        return limiter.getAvailableSlots(date, timeSlot);
     }
 
     @Override
@@ -102,28 +98,44 @@ public class AppointmentService implements IAppointmentLimiter {
         return getAvailableSlots(date, timeSlot) > 0;
     }
 
-    private String getTimeSlot(LocalDateTime dateTime) {
-        return dateTime.getHour() < 12 ? "AM" : "PM";
+    @Override
+    public boolean tryReserve(LocalDate date, String timeSlot) {
+        return limiter.tryReserve(date, timeSlot);
     }
 
-    private void updateDailyCount(LocalDate date, String timeSlot, int change) {
-        Map<String, Integer> slots = dailyAppointments.getOrDefault(date, new HashMap<>());
-        int current = slots.getOrDefault(timeSlot, 0);
-        slots.put(timeSlot, current + change);
-        dailyAppointments.put(date, slots);
+    @Override
+    public void release(LocalDate date, String timeSlot) {
+        limiter.release(date, timeSlot);
+    }
+
+    @Override
+    public void confirm(LocalDate date, String timeSlot) {
+        limiter.confirm(date, timeSlot);
+    }
+
+    @Override
+    public void cancelBooking(LocalDate date, String timeSlot) {
+        limiter.cancelBooking(date, timeSlot);
+    }
+
+    private String getTimeSlot(LocalDateTime dateTime) {
+        return dateTime.getHour() < 12 ? "AM" : "PM";
     }
 
     public void cancelAppointment(String appointmentId, Patient patient) {
         Appointment appointment = appointments.get(appointmentId);
         if (appointment == null) return;
 
-        appointment.setStatus("CANCELLED");
+        // Only the caller that actually flips the status gives the capacity back
+        synchronized (appointment) {
+            if (!appointment.getStatus().canTransitionTo(AppointmentStatus.CANCELLED)) return;
+            appointment.setStatus(AppointmentStatus.CANCELLED);
+        }
         patient.getActiveAppointments().remove(appointment);
 
-        updateDailyCount(
+        limiter.cancelBooking(
                 appointment.getAppointmentDateTime().toLocalDate(),
-                getTimeSlot(appointment.getAppointmentDateTime()),
-                -1
+                getTimeSlot(appointment.getAppointmentDateTime())
         );
     }
 }
\ No newline at end of file
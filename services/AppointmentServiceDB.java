@@ -1,8 +1,11 @@
 package services;
 
 import db.DataBaseConnection;
+import UI.IAppointmentLimiter;
 import models.Appointment;
+import models.AppointmentStatus;
 import models.Patient;
+import utils.Config;
 import utils.Logger;
 
 import java.sql.*;
@@ -10,16 +13,127 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 public class AppointmentServiceDB {
 
+    private static final String ACTIVE_STATUSES =
+            AppointmentStatus.sqlList(EnumSet.of(AppointmentStatus.PENDING, AppointmentStatus.APPROVED));
+
+    private final AvailabilityCache availability = AvailabilityCache.shared();
+    private final CapacityCalendar calendar = CapacityCalendar.shared();
+    private final IAppointmentLimiter limiter = sharedLimiter();
+    private final SlotHoldManager holds = SlotHoldManager.shared();
+
+    private static IAppointmentLimiter sharedLimiter;
+
+    /**
+     * The booking cap enforcer for this process. With capacity leasing on, several
+     * instances can share one database and still respect the caps together.
+     */
+    public static synchronized IAppointmentLimiter sharedLimiter() {
+        if (sharedLimiter == null) {
+            if (Config.CAPACITY_LEASING) {
+                sharedLimiter = new LeasedAppointmentLimiter(Config.MAX_AM_SLOTS, Config.MAX_PM_SLOTS,
+                        Config.LEASE_BLOCK_SIZE, Config.LEASE_TTL_SECONDS).start();
+            } else {
+                sharedLimiter = new ConcurrentAppointmentLimiter(Config.MAX_AM_SLOTS, Config.MAX_PM_SLOTS)
+                        .withSeedSource(AppointmentServiceDB::countBooked);
+            }
+        }
+        return sharedLimiter;
+    }
+
+    /**
+     * Hand back any leased capacity on the way out
+     */
+    public static synchronized void shutdownSharedLimiter() {
+        if (sharedLimiter instanceof LeasedAppointmentLimiter) {
+            ((LeasedAppointmentLimiter) sharedLimiter).shutdown();
+        }
+        sharedLimiter = null;
+    }
+
     public Appointment createAppointment(Patient patient, String serviceId, LocalDateTime dateTime, String doctorId) {
         if (patient.getActiveAppointments().size() >= 1) {
             throw new RuntimeException("Patient already has an active appointment");
         }
+        if (holds.isHeldByOther(doctorId, dateTime, patient.getUserId())) {
+            throw new RuntimeException("This time is being booked by another patient");
+        }
+
+        String half = SlotHoldManager.halfDay(dateTime);
+        if (!limiter.tryReserve(dateTime.toLocalDate(), half)) {
+            throw new RuntimeException("Daily limit reached for this time slot");
+        }
+
+        Appointment created = insertAppointment(patient, serviceId, dateTime, doctorId);
+        if (created == null) {
+            limiter.release(dateTime.toLocalDate(), half);
+        } else {
+            limiter.confirm(dateTime.toLocalDate(), half);
+        }
+        return created;
+    }
+
+    // ================= Slot Holds =================
+
+    /**
+     * Hold a slot while the patient finishes the booking form. Returns null if the
+     * slot is held by someone else or the half-day is already full.
+     */
+    public SlotHoldManager.Hold holdSlot(Patient patient, String doctorId, LocalDateTime dateTime) {
+        return holds.place(patient.getUserId(), doctorId, dateTime);
+    }
+
+    public void releaseHold(String token) {
+        if (token != null) {
+            holds.release(token);
+        }
+    }
+
+    /**
+     * Book the slot behind a hold. The hold's capacity becomes the appointment's,
+     * so this cannot fail on the daily limit once the hold is still live.
+     */
+    public Appointment bookHeld(Patient patient, String token, String serviceId) {
+        if (patient.getActiveAppointments().size() >= 1) {
+            throw new RuntimeException("Patient already has an active appointment");
+        }
+        SlotHoldManager.Hold hold = holds.claim(token, patient.getUserId());
+        if (hold == null) {
+            throw new RuntimeException("Your hold on this time has expired. Please load availability again.");
+        }
+
+        LocalDate date = hold.getDateTime().toLocalDate();
+        String half = SlotHoldManager.halfDay(hold.getDateTime());
+        Appointment created = insertAppointment(patient, serviceId, hold.getDateTime(), hold.getDoctorId());
+        if (created == null) {
+            limiter.release(date, half);
+        } else {
+            limiter.confirm(date, half);
+        }
+        return created;
+    }
 
+    /**
+     * Booked count used to seed the in-process limiter the first time a half-day is used,
+     * or {@link ConcurrentAppointmentLimiter#UNKNOWN} so the limiter fails closed
+     */
+    private static int countBooked(LocalDate date, String half) {
+        try (Connection conn = DataBaseConnection.getConnection()) {
+            return CapacityLeaseCoordinator.countBooked(conn, date, half);
+        } catch (SQLException e) {
+            Logger.logError("Failed to count booked appointments for " + date + " " + half, e);
+        }
+        return ConcurrentAppointmentLimiter.UNKNOWN;
+    }
+
+    private Appointment insertAppointment(Patient patient, String serviceId, LocalDateTime dateTime, String doctorId) {
         String appointmentId = UUID.randomUUID().toString();
         String sql = "INSERT INTO appointments (appointment_id, patient_id, patient_name, service_id, appointment_date, appointment_time, doctor_id, status) VALUES (?, ?, ?, ?, ?, ?, ?, 'PENDING')";
 
@@ -43,9 +157,10 @@ public class AppointmentServiceDB {
                 appointment.setServiceId(serviceId);
                 appointment.setAppointmentDateTime(dateTime);
                 appointment.setDoctorId(doctorId);
-                appointment.setStatus("PENDING");
+                appointment.setStatus(AppointmentStatus.PENDING);
 
                 patient.getActiveAppointments().add(appointment);
+                recordSlot(conn, appointmentId, doctorId, dateTime, true);
                 Logger.logError("Created appointment: " + appointmentId, null);
                 return appointment;
             }
@@ -58,14 +173,24 @@ public class AppointmentServiceDB {
     }
 
     public boolean cancelAppointment(Appointment appointment, Patient patient) {
-        String sql = "UPDATE appointments SET status = 'CANCELLED' WHERE appointment_id = ?";
+        AppointmentStatus current = appointment.getStatus();
+        if (current != null && !current.canTransitionTo(AppointmentStatus.CANCELLED)) {
+            return false;
+        }
+
+        String sql = "UPDATE appointments SET status = 'CANCELLED' WHERE appointment_id = ?"
+                + " AND status IN (" + AppointmentStatus.sqlList(AppointmentStatus.CANCELLED.getPredecessors()) + ")";
         try (Connection conn = DataBaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, appointment.getAppointmentId());
             int rows = stmt.executeUpdate();
             if (rows > 0) {
+                appointment.setStatus(AppointmentStatus.CANCELLED);
                 patient.getActiveAppointments().remove(appointment);
+                recordSlot(conn, appointment.getAppointmentId(), appointment.getDoctorId(),
+                        appointment.getAppointmentDateTime(), false);
+                releaseCapacity(appointment.getAppointmentDateTime());
                 return true;
             }
         } catch (SQLException e) {
@@ -74,14 +199,23 @@ public class AppointmentServiceDB {
         return false;
     }
 
+    /**
+     * Full history for a patient: hot rows plus anything moved to the archive.
+     * Dashboard finders below only read the hot table.
+     */
     public List<Appointment> findByPatientId(String patientId) {
         List<Appointment> appointments = new ArrayList<>();
-        String sql = "SELECT * FROM appointments WHERE patient_id = ? ORDER BY appointment_date DESC, appointment_time DESC";
+        String sql = "SELECT * FROM ("
+                + "SELECT * FROM appointments WHERE patient_id = ?"
+                + " UNION ALL "
+                + "SELECT * FROM " + AppointmentArchiver.ARCHIVE_TABLE + " WHERE patient_id = ?"
+                + ") h ORDER BY appointment_date DESC, appointment_time DESC";
 
         try (Connection conn = DataBaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, patientId);
+            stmt.setString(2, patientId);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -134,24 +268,130 @@ public class AppointmentServiceDB {
         return appointments;
     }
 
-    public boolean updateAppointmentStatus(String appointmentId, String status) {
-        if (appointmentId == null || appointmentId.isBlank() || status == null || status.isBlank()) {
+    public int countAll() {
+        try (Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM appointments");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            Logger.logError("Failed to count appointments", e);
+        }
+        return 0;
+    }
+
+    /**
+     * One page of {@link #findAll()} order. The offset is walked backwards on the
+     * slot index alone and only the page's rows are read in full; null if the
+     * page could not be read.
+     */
+    public List<Appointment> findPage(int offset, int limit) {
+        List<Appointment> appointments = new ArrayList<>();
+        String sql = """
+            SELECT a.* FROM appointments a
+            JOIN (SELECT appointment_id FROM appointments
+                  ORDER BY appointment_date DESC, appointment_time DESC, appointment_id DESC
+                  LIMIT ? OFFSET ?) page USING (appointment_id)
+            ORDER BY a.appointment_date DESC, a.appointment_time DESC, a.appointment_id DESC
+        """;
+
+        try (Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, limit);
+            stmt.setInt(2, offset);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    appointments.add(mapResultSetToAppointment(rs));
+                }
+            }
+        } catch (SQLException e) {
+            Logger.logError("Failed to load appointments " + offset + "+" + limit, e);
+            return null;
+        }
+
+        return appointments;
+    }
+
+    /**
+     * Current rows for a set of changed appointments. IDs missing from the
+     * result were deleted or archived; null if the rows could not be read.
+     */
+    public List<Appointment> findByIds(Collection<String> appointmentIds) {
+        List<Appointment> appointments = new ArrayList<>();
+        if (appointmentIds.isEmpty()) {
+            return appointments;
+        }
+        StringBuilder sql = new StringBuilder("SELECT * FROM appointments WHERE appointment_id IN (");
+        for (int i = 0; i < appointmentIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+
+        try (Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+
+            int i = 1;
+            for (String id : appointmentIds) {
+                stmt.setString(i++, id);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    appointments.add(mapResultSetToAppointment(rs));
+                }
+            }
+        } catch (SQLException e) {
+            Logger.logError("Failed to load " + appointmentIds.size() + " changed appointments", e);
+            return null;
+        }
+
+        return appointments;
+    }
+
+    /**
+     * Move an appointment to a new status. Illegal transitions are rejected, and the
+     * update is conditional on the current status so a concurrent change cannot be
+     * overwritten.
+     */
+    public boolean updateAppointmentStatus(String appointmentId, AppointmentStatus status) {
+        if (appointmentId == null || appointmentId.isBlank() || status == null) {
             return false;
         }
 
-        String normalized = status.trim().toUpperCase();
-        if (!normalized.equals("PENDING") && !normalized.equals("APPROVED")
-                && !normalized.equals("COMPLETED") && !normalized.equals("CANCELLED")) {
+        Set<AppointmentStatus> predecessors = status.getPredecessors();
+        if (predecessors.isEmpty()) {
             return false;
         }
 
-        String sql = "UPDATE appointments SET status = ? WHERE appointment_id = ?";
+        String lookup = "SELECT doctor_id, appointment_date, appointment_time FROM appointments WHERE appointment_id = ?";
+        String sql = "UPDATE appointments SET status = ? WHERE appointment_id = ?"
+                + " AND status IN (" + AppointmentStatus.sqlList(predecessors) + ")";
         try (Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement find = conn.prepareStatement(lookup);
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, normalized);
+            String doctorId = null;
+            LocalDateTime slot = null;
+            find.setString(1, appointmentId);
+            try (ResultSet rs = find.executeQuery()) {
+                if (rs.next() && rs.getDate("appointment_date") != null && rs.getTime("appointment_time") != null) {
+                    doctorId = rs.getString("doctor_id");
+                    slot = LocalDateTime.of(rs.getDate("appointment_date").toLocalDate(),
+                            rs.getTime("appointment_time").toLocalTime());
+                }
+            }
+
+            stmt.setString(1, status.name());
             stmt.setString(2, appointmentId);
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() == 0) {
+                return false;
+            }
+
+            // Every status except CANCELLED keeps the slot taken
+            recordSlot(conn, appointmentId, doctorId, slot, status != AppointmentStatus.CANCELLED);
+            if (status == AppointmentStatus.CANCELLED) {
+                releaseCapacity(slot);
+            }
+            return true;
 
         } catch (SQLException e) {
             Logger.logError("Failed to update appointment status: " + appointmentId, e);
@@ -162,7 +402,7 @@ public class AppointmentServiceDB {
 
     public List<Appointment> findActiveByPatientId(String patientId) {
         List<Appointment> appointments = new ArrayList<>();
-        String sql = "SELECT * FROM appointments WHERE patient_id = ? AND status NOT IN ('CANCELLED','COMPLETED') ORDER BY appointment_date ASC, appointment_time ASC";
+        String sql = "SELECT * FROM appointments WHERE patient_id = ? AND status IN (" + ACTIVE_STATUSES + ") ORDER BY appointment_date ASC, appointment_time ASC";
 
         try (Connection conn = DataBaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -181,6 +421,28 @@ public class AppointmentServiceDB {
         return appointments;
     }
 
+    /**
+     * Keep the in-memory availability views in step with a booking write and
+     * tell other instances which doctor-day changed
+     */
+    private void recordSlot(Connection conn, String appointmentId, String doctorId, LocalDateTime slot, boolean taken) {
+        if (taken) {
+            availability.markBooked(doctorId, slot);
+        } else {
+            availability.markFree(doctorId, slot);
+        }
+        if (doctorId != null && slot != null) {
+            calendar.markSlot(doctorId, slot.toLocalDate(), AvailabilityCache.slotIndex(slot.toLocalTime()), taken);
+            ChangeLog.record(conn, ChangeLog.APPOINTMENT, appointmentId, ChangeLog.slotScope(doctorId, slot.toLocalDate()));
+        }
+    }
+
+    private void releaseCapacity(LocalDateTime slot) {
+        if (slot != null) {
+            limiter.cancelBooking(slot.toLocalDate(), SlotHoldManager.halfDay(slot));
+        }
+    }
+
     private Appointment mapResultSetToAppointment(ResultSet rs) throws SQLException {
         Appointment a = new Appointment();
         a.setAppointmentId(rs.getString("appointment_id"));
@@ -191,7 +453,7 @@ public class AppointmentServiceDB {
         }
         a.setServiceId(rs.getString("service_id"));
         a.setDoctorId(rs.getString("doctor_id"));
-        a.setStatus(rs.getString("status"));
+        a.setStatus(AppointmentStatus.parse(rs.getString("status")));
 
         Date date = rs.getDate("appointment_date");
         Time time = rs.getTime("appointment_time");
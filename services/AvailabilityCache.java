@@ -0,0 +1,202 @@
+package services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Booked-slot bitmasks per (doctor, date), kept in memory for the booking form.
+ *
+ * Each day has 16 half-hour slots (8 AM, 8 PM), so a day fits in one int:
+ * bit i is set when slot i has a non-cancelled appointment. Writes in
+ * AppointmentServiceDB flip bits in place instead of dropping the entry.
+ *
+ * The map is bounded and access-ordered, so the least recently viewed
+ * doctor-days are evicted first; days already in the past are purged eagerly.
+ */
+public class AvailabilityCache {
+
+    public static final int SLOTS_PER_DAY = 16;
+    public static final int AM_SLOTS = 8;
+    public static final int AM_MASK = (1 << AM_SLOTS) - 1;
+    public static final int PM_MASK = AM_MASK << AM_SLOTS;
+
+    private static final LocalTime AM_START = LocalTime.of(8, 0);
+    private static final LocalTime PM_START = LocalTime.of(13, 0);
+    private static final int SLOT_MINUTES = 30;
+    private static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    private static final AvailabilityCache SHARED = new AvailabilityCache(DEFAULT_MAX_ENTRIES);
+
+    public static AvailabilityCache shared() {
+        return SHARED;
+    }
+
+    private final LinkedHashMap<Key, Integer> booked;
+    private LocalDate purgedThrough = LocalDate.MIN;
+    private long version;
+
+    private long hits;
+    private long misses;
+
+    public AvailabilityCache(int maxEntries) {
+        this.booked = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    // ================= Slots =================
+
+    /**
+     * Slot index 0-15 for a start time, or -1 if it is not a bookable slot
+     */
+    public static int slotIndex(LocalTime time) {
+        if (time == null || time.getSecond() != 0 || time.getMinute() % SLOT_MINUTES != 0) {
+            return -1;
+        }
+        int minutes = time.getHour() * 60 + time.getMinute();
+        int am = (minutes - (AM_START.getHour() * 60)) / SLOT_MINUTES;
+        if (minutes >= AM_START.getHour() * 60 && am < AM_SLOTS) {
+            return am;
+        }
+        int pm = (minutes - (PM_START.getHour() * 60)) / SLOT_MINUTES;
+        if (minutes >= PM_START.getHour() * 60 && pm < AM_SLOTS) {
+            return AM_SLOTS + pm;
+        }
+        return -1;
+    }
+
+    public static LocalTime slotTime(int index) {
+        if (index < 0 || index >= SLOTS_PER_DAY) {
+            throw new IllegalArgumentException("Invalid slot index: " + index);
+        }
+        return index < AM_SLOTS
+                ? AM_START.plusMinutes((long) index * SLOT_MINUTES)
+                : PM_START.plusMinutes((long) (index - AM_SLOTS) * SLOT_MINUTES);
+    }
+
+    // ================= Lookup =================
+
+    /**
+     * Booked mask for a doctor-day, loading it on a miss. A loader returns null
+     * when the query failed; that is passed through and not cached.
+     */
+    public Integer getBookedMask(String doctorId, LocalDate date, Supplier<Integer> loader) {
+        Key key = new Key(doctorId, date);
+        long startVersion;
+        synchronized (this) {
+            purgePastDays();
+            Integer mask = booked.get(key);
+            if (mask != null) {
+                hits++;
+                return mask;
+            }
+            misses++;
+            startVersion = version;
+        }
+
+        Integer loaded = loader.get();
+        if (loaded != null) {
+            synchronized (this) {
+                // A booking or cancellation landed while we were querying; the
+                // loaded mask may predate it, so leave the slot empty for next time
+                if (version == startVersion) {
+                    booked.put(key, loaded);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // ================= Updates =================
+
+    public void markBooked(String doctorId, LocalDateTime dateTime) {
+        update(doctorId, dateTime, true);
+    }
+
+    public void markFree(String doctorId, LocalDateTime dateTime) {
+        update(doctorId, dateTime, false);
+    }
+
+    private synchronized void update(String doctorId, LocalDateTime dateTime, boolean taken) {
+        version++;
+        if (doctorId == null || dateTime == null) {
+            return;
+        }
+        Key key = new Key(doctorId, dateTime.toLocalDate());
+        int slot = slotIndex(dateTime.toLocalTime());
+        if (slot < 0) {
+            booked.remove(key);
+            return;
+        }
+        // Only patch days that are already cached; absent days load fresh on demand
+        booked.computeIfPresent(key, (k, mask) -> taken ? mask | (1 << slot) : mask & ~(1 << slot));
+    }
+
+    public synchronized void invalidate(String doctorId, LocalDate date) {
+        version++;
+        booked.remove(new Key(doctorId, date));
+    }
+
+    public synchronized void clear() {
+        version++;
+        booked.clear();
+    }
+
+    private void purgePastDays() {
+        LocalDate today = LocalDate.now();
+        if (!purgedThrough.isBefore(today)) {
+            return;
+        }
+        Iterator<Key> it = booked.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().date.isBefore(today)) {
+                it.remove();
+            }
+        }
+        purgedThrough = today;
+    }
+
+    // ================= Stats =================
+
+    public synchronized int size() { return booked.size(); }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("AvailabilityCache[entries=%d, hits=%d, misses=%d]", booked.size(), hits, misses);
+    }
+
+    private static final class Key {
+        final String doctorId;
+        final LocalDate date;
+
+        Key(String doctorId, LocalDate date) {
+            this.doctorId = doctorId;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return doctorId.equals(other.doctorId) && date.equals(other.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(doctorId, date);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package services;
+
+import utils.Config;
+import utils.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dense booked-slot calendar for every doctor over a rolling two-year window.
+ *
+ * One int per (doctor, day): the low 16 bits are the booked slots in
+ * {@link AvailabilityCache} order and {@link #LOADED} marks a day whose
+ * bookings are known. Rows are doctor-major so a week for one doctor is seven
+ * adjacent ints. Days are a ring indexed by epoch day, with a per-day stamp so
+ * a column left over from two years ago is cleared lazily on first write.
+ *
+ * The store is a memory-mapped file (256 doctors x 768 days is about 800 KB).
+ * Its bookings are not trusted across restarts: the change log poller clears
+ * them when it starts, since changes made while the process was down were
+ * never applied. If the file cannot be mapped it falls back to a heap buffer
+ * for the life of the process.
+ */
+public class CapacityCalendar {
+
+    public static final int MAX_DOCTORS = 256;
+    public static final int DAYS = 768;
+    public static final int LOADED = 1 << 31;
+
+    private static final int MAGIC = 0x44414343; // "DACC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int ID_BYTES = 32;
+
+    private static final int IDS_OFFSET = HEADER_BYTES;
+    private static final int STAMPS_OFFSET = IDS_OFFSET + MAX_DOCTORS * ID_BYTES;
+    private static final int CELLS_OFFSET = STAMPS_OFFSET + DAYS * Integer.BYTES;
+    private static final int FILE_BYTES = CELLS_OFFSET + MAX_DOCTORS * DAYS * Integer.BYTES;
+
+    private static CapacityCalendar shared;
+
+    public static synchronized CapacityCalendar shared() {
+        if (shared == null) {
+            shared = new CapacityCalendar(Paths.get(Config.CAPACITY_CALENDAR_FILE));
+        }
+        return shared;
+    }
+
+    private final ByteBuffer buffer;
+    private final IntBuffer stamps;
+    private final IntBuffer cells;
+    private final Map<String, Integer> doctorIndex = new HashMap<>();
+    private int doctorCount;
+
+    public CapacityCalendar(Path file) {
+        this.buffer = open(file);
+        this.stamps = slice(STAMPS_OFFSET, DAYS);
+        this.cells = slice(CELLS_OFFSET, MAX_DOCTORS * DAYS);
+
+        doctorCount = buffer.getInt(16);
+        for (int i = 0; i < doctorCount; i++) {
+            doctorIndex.put(readId(i), i);
+        }
+    }
+
+    private static ByteBuffer open(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            if (Files.exists(file) && !hasValidHeader(file)) {
+                Path aside = file.resolveSibling(file.getFileName() + ".old");
+                Files.move(file, aside, StandardCopyOption.REPLACE_EXISTING);
+                Logger.log("Capacity calendar layout changed; previous file moved to " + aside);
+            }
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_BYTES);
+                writeHeaderIfNew(mapped);
+                return mapped;
+            }
+        } catch (IOException e) {
+            Logger.logError("Failed to map capacity calendar " + file + ", keeping it in memory only", e);
+            ByteBuffer heap = ByteBuffer.allocate(FILE_BYTES);
+            writeHeaderIfNew(heap);
+            return heap;
+        }
+    }
+
+    private static boolean hasValidHeader(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != FILE_BYTES) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(16);
+            channel.read(header, 0);
+            return header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+                    && header.getInt(8) == MAX_DOCTORS && header.getInt(12) == DAYS;
+        }
+    }
+
+    private static void writeHeaderIfNew(ByteBuffer buf) {
+        if (buf.getInt(0) == MAGIC) {
+            return;
+        }
+        buf.putInt(0, MAGIC);
+        buf.putInt(4, VERSION);
+        buf.putInt(8, MAX_DOCTORS);
+        buf.putInt(12, DAYS);
+        buf.putInt(16, 0);
+    }
+
+    private IntBuffer slice(int offset, int ints) {
+        ByteBuffer dup = buffer.duplicate();
+        dup.position(offset);
+        dup.limit(offset + ints * Integer.BYTES);
+        return dup.slice().asIntBuffer();
+    }
+
+    // ================= Reads =================
+
+    /**
+     * Booked mask for a doctor-day, or null if that day has not been loaded
+     */
+    public synchronized Integer getBookedMask(String doctorId, LocalDate date) {
+        Integer doctor = doctorIndex.get(doctorId);
+        if (doctor == null) {
+            return null;
+        }
+        long epochDay = date.toEpochDay();
+        int day = dayIndex(epochDay);
+        if (stamps.get(day) != stamp(epochDay)) {
+            return null;
+        }
+        int cell = cells.get(doctor * DAYS + day);
+        return (cell & LOADED) != 0 ? cell & ~LOADED : null;
+    }
+
+    /**
+     * First free slot for a doctor from {@code from} over the next {@code days} days,
+     * as {@code dayOffset * 16 + slotIndex}, or -1 if none. {@code workingMaskByDow}
+     * holds the slots the doctor works on each ISO weekday (index 0 = Monday).
+     * Days that are not loaded are skipped, so callers load the range first.
+     */
+    public synchronized int findFirstFree(String doctorId, LocalDate from, int days, int[] workingMaskByDow) {
+        Integer doctor = doctorIndex.get(doctorId);
+        if (doctor == null || days > DAYS) {
+            return -1;
+        }
+
+        long start = from.toEpochDay();
+        int dow = from.getDayOfWeek().getValue() - 1;
+        int row = doctor * DAYS;
+        for (int offset = 0; offset < days; offset++, dow = dow == 6 ? 0 : dow + 1) {
+            long epochDay = start + offset;
+            int day = dayIndex(epochDay);
+            int cell = cells.get(row + day);
+            // Loaded, current and with a working slot that is not booked
+            int free = workingMaskByDow[dow] & ~cell;
+            if ((cell & LOADED) != 0 && stamps.get(day) == stamp(epochDay) && (free & 0xFFFF) != 0) {
+                return offset * AvailabilityCache.SLOTS_PER_DAY + Integer.numberOfTrailingZeros(free);
+            }
+        }
+        return -1;
+    }
+
+    // ================= Writes =================
+
+    /**
+     * Record the full set of booked slots for a doctor-day as read from the database
+     */
+    public synchronized void putBookedMask(String doctorId, LocalDate date, int mask) {
+        int doctor = indexFor(doctorId);
+        if (doctor < 0) {
+            return;
+        }
+        int day = claimDay(date.toEpochDay());
+        cells.put(doctor * DAYS + day, LOADED | (mask & 0xFFFF));
+    }
+
+    /**
+     * Flip one slot of a loaded day; unloaded days are left for the next full load
+     */
+    public synchronized void markSlot(String doctorId, LocalDate date, int slot, boolean taken) {
+        Integer doctor = doctorIndex.get(doctorId);
+        if (doctor == null || slot < 0 || slot >= AvailabilityCache.SLOTS_PER_DAY) {
+            return;
+        }
+        long epochDay = date.toEpochDay();
+        int day = dayIndex(epochDay);
+        if (stamps.get(day) != stamp(epochDay)) {
+            return;
+        }
+        int i = doctor * DAYS + day;
+        int cell = cells.get(i);
+        if ((cell & LOADED) != 0) {
+            cells.put(i, taken ? cell | (1 << slot) : cell & ~(1 << slot));
+        }
+    }
+
+    /**
+     * Forget a doctor-day so it is reloaded from the database next time
+     */
+    public synchronized void invalidate(String doctorId, LocalDate date) {
+        Integer doctor = doctorIndex.get(doctorId);
+        if (doctor == null) {
+            return;
+        }
+        long epochDay = date.toEpochDay();
+        int day = dayIndex(epochDay);
+        if (stamps.get(day) == stamp(epochDay)) {
+            cells.put(doctor * DAYS + day, 0);
+        }
+    }
+
+    /**
+     * Forget every loaded day, e.g. after missing changes made by another instance
+     */
+    public synchronized void invalidateAll() {
+        for (int day = 0; day < DAYS; day++) {
+            stamps.put(day, 0);
+        }
+    }
+
+    public synchronized void flush() {
+        if (buffer instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) buffer).force();
+        }
+    }
+
+    // ================= Layout =================
+
+    private int claimDay(long epochDay) {
+        int day = dayIndex(epochDay);
+        int stamp = stamp(epochDay);
+        if (stamps.get(day) != stamp) {
+            for (int d = 0; d < doctorCount; d++) {
+                cells.put(d * DAYS + day, 0);
+            }
+            stamps.put(day, stamp);
+        }
+        return day;
+    }
+
+    private int indexFor(String doctorId) {
+        Integer existing = doctorIndex.get(doctorId);
+        if (existing != null) {
+            return existing;
+        }
+        byte[] id = doctorId.getBytes(StandardCharsets.UTF_8);
+        if (doctorCount == MAX_DOCTORS || id.length > ID_BYTES - 2) {
+            return -1;
+        }
+        int index = doctorCount++;
+        int offset = IDS_OFFSET + index * ID_BYTES;
+        buffer.putShort(offset, (short) id.length);
+        for (int i = 0; i < id.length; i++) {
+            buffer.put(offset + 2 + i, id[i]);
+        }
+        // The row may hold data from a doctor slot that was never registered
+        for (int day = 0; day < DAYS; day++) {
+            cells.put(index * DAYS + day, 0);
+        }
+        buffer.putInt(16, doctorCount);
+        doctorIndex.put(doctorId, index);
+        return index;
+    }
+
+    private String readId(int index) {
+        int offset = IDS_OFFSET + index * ID_BYTES;
+        byte[] id = new byte[buffer.getShort(offset)];
+        for (int i = 0; i < id.length; i++) {
+            id[i] = buffer.get(offset + 2 + i);
+        }
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    private static int dayIndex(long epochDay) {
+        return (int) Math.floorMod(epochDay, (long) DAYS);
+    }
+
+    /** Epoch day + 1, so an untouched zero stamp never matches */
+    private static int stamp(long epochDay) {
+        return (int) (epochDay + 1);
+    }
+}
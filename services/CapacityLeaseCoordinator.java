@@ -0,0 +1,187 @@
+package services;
+
+import db.DataBaseConnection;
+import models.AppointmentStatus;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Database side of capacity leasing. Grants blocks of booking tokens for a
+ * half-day so that, across every node, booked appointments plus unexpired
+ * leased tokens never exceed the cap.
+ *
+ * Each grant runs in one short transaction that locks the half-day's row in
+ * capacity_slots, so nodes asking for the same half-day queue behind each
+ * other while other half-days are unaffected. Expiry uses the database clock
+ * only; nodes never compare their own clocks with it.
+ */
+public class CapacityLeaseCoordinator {
+
+    public static final String SLOTS_TABLE = "capacity_slots";
+    public static final String LEASES_TABLE = "capacity_leases";
+
+    private final String nodeId;
+
+    public CapacityLeaseCoordinator(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Tokens granted to this node for one half-day
+     */
+    public static final class Grant {
+        private final String leaseId;
+        private final int tokens;
+
+        Grant(String leaseId, int tokens) {
+            this.leaseId = leaseId;
+            this.tokens = tokens;
+        }
+
+        public String getLeaseId() { return leaseId; }
+        public int getTokens() { return tokens; }
+    }
+
+    /**
+     * Ask for up to {@code wanted} tokens, or get null when the half-day has nothing left
+     */
+    public Grant acquire(LocalDate date, String timeSlot, int wanted, int cap, int ttlSeconds) throws SQLException {
+        try (Connection conn = DataBaseConnection.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                lockSlot(conn, date, timeSlot);
+
+                int available = cap - countBooked(conn, date, timeSlot) - countLeased(conn, date, timeSlot);
+                int tokens = Math.min(wanted, available);
+                if (tokens <= 0) {
+                    conn.commit();
+                    return null;
+                }
+
+                String leaseId = UUID.randomUUID().toString();
+                String sql = "INSERT INTO " + LEASES_TABLE
+                        + " (lease_id, node_id, slot_date, half_day, tokens, expires_at)"
+                        + " VALUES (?, ?, ?, ?, ?, NOW(3) + INTERVAL ? SECOND)";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, leaseId);
+                    stmt.setString(2, nodeId);
+                    stmt.setDate(3, Date.valueOf(date));
+                    stmt.setString(4, timeSlot);
+                    stmt.setInt(5, tokens);
+                    stmt.setInt(6, ttlSeconds);
+                    stmt.executeUpdate();
+                }
+                conn.commit();
+                return new Grant(leaseId, tokens);
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Extend a lease that still has tokens in flight and shrink it to what is
+     * still needed. Returns false if the lease already expired in the database,
+     * in which case its tokens may have been granted elsewhere.
+     */
+    public boolean renew(String leaseId, int tokens, int ttlSeconds) throws SQLException {
+        String sql = "UPDATE " + LEASES_TABLE + " SET tokens = ?, expires_at = NOW(3) + INTERVAL ? SECOND"
+                + " WHERE lease_id = ? AND expires_at > NOW(3)";
+        try (Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, tokens);
+            stmt.setInt(2, ttlSeconds);
+            stmt.setString(3, leaseId);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Hand a lease back. Tokens spent on bookings are already counted as
+     * appointments, so the lease row can simply go.
+     */
+    public void giveBack(String leaseId) throws SQLException {
+        try (Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + LEASES_TABLE + " WHERE lease_id = ?")) {
+            stmt.setString(1, leaseId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Capacity left for a half-day as every node sees it, for display only
+     */
+    public int available(LocalDate date, String timeSlot, int cap) throws SQLException {
+        try (Connection conn = DataBaseConnection.getConnection()) {
+            return cap - countBooked(conn, date, timeSlot) - countLeased(conn, date, timeSlot);
+        }
+    }
+
+    /**
+     * Drop lease rows of crashed or stopped nodes long after they expired
+     */
+    public int purgeExpired() throws SQLException {
+        try (Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "DELETE FROM " + LEASES_TABLE + " WHERE expires_at < NOW(3) - INTERVAL 1 HOUR")) {
+            return stmt.executeUpdate();
+        }
+    }
+
+    // ================= Queries =================
+
+    private static void lockSlot(Connection conn, LocalDate date, String timeSlot) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement(
+                "INSERT IGNORE INTO " + SLOTS_TABLE + " (slot_date, half_day) VALUES (?, ?)")) {
+            insert.setDate(1, Date.valueOf(date));
+            insert.setString(2, timeSlot);
+            insert.executeUpdate();
+        }
+        try (PreparedStatement lock = conn.prepareStatement(
+                "SELECT slot_date FROM " + SLOTS_TABLE + " WHERE slot_date = ? AND half_day = ? FOR UPDATE")) {
+            lock.setDate(1, Date.valueOf(date));
+            lock.setString(2, timeSlot);
+            try (ResultSet rs = lock.executeQuery()) {
+                rs.next();
+            }
+        }
+    }
+
+    /**
+     * Non-cancelled bookings for a half-day; also used to seed the single-node limiter
+     */
+    static int countBooked(Connection conn, LocalDate date, String timeSlot) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM appointments WHERE appointment_date = ? AND status <> ?"
+                + ("AM".equals(timeSlot) ? " AND appointment_time < '12:00:00'" : " AND appointment_time >= '12:00:00'");
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setDate(1, Date.valueOf(date));
+            stmt.setString(2, AppointmentStatus.CANCELLED.name());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private static int countLeased(Connection conn, LocalDate date, String timeSlot) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(tokens), 0) FROM " + LEASES_TABLE
+                + " WHERE slot_date = ? AND half_day = ? AND expires_at > NOW(3)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setDate(1, Date.valueOf(date));
+            stmt.setString(2, timeSlot);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package services;
+
+import db.DataBaseConnection;
+import utils.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Append side of the change_log table. Every write to a cached entity adds a
+ * row naming the entity so other instances can evict their copies; see
+ * {@link ChangeLogPoller}. The auto-increment version orders the log.
+ */
+public final class ChangeLog {
+
+    public static final String TABLE = "change_log";
+
+    public static final String DOCTOR = "DOCTOR";
+    public static final String SERVICE = "SERVICE";
+    public static final String APPOINTMENT = "APPOINTMENT";
+
+    /** Identifies this process so it can skip its own entries */
+    public static final String NODE_ID = ManagementFactory.getRuntimeMXBean().getName();
+
+    private ChangeLog() {
+    }
+
+    /**
+     * Record a change on the writer's connection. A failure is logged and never
+     * fails the write itself; other instances then catch up when their cache
+     * entry expires.
+     */
+    public static void record(Connection conn, String entityType, String entityId, String scope) {
+        String sql = "INSERT INTO " + TABLE + " (entity_type, entity_id, scope, node_id) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, entityType);
+            stmt.setString(2, entityId);
+            stmt.setString(3, scope);
+            stmt.setString(4, NODE_ID);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            Logger.logError("Failed to record change for " + entityType + " " + entityId, e);
+        }
+    }
+
+    /**
+     * Record a change for a write made through a service outside this package
+     */
+    public static void record(String entityType, String entityId) {
+        try (Connection conn = DataBaseConnection.getConnection()) {
+            record(conn, entityType, entityId, null);
+        } catch (SQLException e) {
+            Logger.logError("Failed to record change for " + entityType + " " + entityId, e);
+        }
+    }
+
+    /**
+     * Scope of an appointment change: the doctor-day whose availability it affects
+     */
+    public static String slotScope(String doctorId, LocalDate date) {
+        return doctorId + '|' + date;
+    }
+}
@@ -0,0 +1,322 @@
+package services;
+
+import db.DataBaseConnection;
+import utils.Config;
+import utils.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps this instance's caches coherent with writes made by other instances.
+ *
+ * Polls change_log past a watermark and evicts the named entries from
+ * {@link ReferenceDataCache}, {@link AvailabilityCache} and
+ * {@link CapacityCalendar}. Auto-increment versions are handed out at insert
+ * but may commit out of order, so a version skipped over is remembered as a
+ * gap and looked for again for a few seconds before it is given up as a
+ * rollback. If the log cannot be read, everything is evicted once it can.
+ *
+ * Open dashboards subscribe to the IDs of appointments changed elsewhere so
+ * they can refresh just those rows. The poll interval starts at
+ * app.change_log_poll_millis, doubles after each quiet poll up to
+ * app.change_log_idle_poll_millis, and drops back as soon as anything changes.
+ */
+public class ChangeLogPoller {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_GAPS = 1000;
+    private static final long GAP_WAIT_MILLIS = 10_000;
+
+    private final ReferenceDataCache referenceData;
+    private final AvailabilityCache availability;
+    private final CapacityCalendar calendar;
+
+    private long watermark = -1;
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+    private boolean resync;
+
+    private final List<Consumer<Set<String>>> appointmentListeners = new CopyOnWriteArrayList<>();
+
+    private final Object scheduleLock = new Object();
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> nextPoll;
+    private long delayMillis;
+
+    public ChangeLogPoller() {
+        this(ReferenceDataCache.shared(), AvailabilityCache.shared(), CapacityCalendar.shared());
+    }
+
+    public ChangeLogPoller(ReferenceDataCache referenceData, AvailabilityCache availability, CapacityCalendar calendar) {
+        this.referenceData = referenceData;
+        this.availability = availability;
+        this.calendar = calendar;
+    }
+
+    // ================= Polling =================
+
+    /**
+     * Apply every entry written since the last poll. Returns the number of
+     * entries from other instances.
+     */
+    public synchronized int pollOnce() {
+        try (Connection conn = DataBaseConnection.getConnection()) {
+            if (watermark < 0) {
+                // In-memory caches start empty, so only later changes matter. The
+                // capacity calendar is on disk and missed whatever changed while
+                // this process was down, so its days are reloaded on next use.
+                watermark = maxVersion(conn);
+                calendar.invalidateAll();
+                return 0;
+            }
+            if (resync) {
+                evictAll();
+                resync = false;
+                notifyAppointments(null);
+            }
+
+            int applied = 0;
+            Set<String> appointments = new LinkedHashSet<>();
+            int read;
+            do {
+                read = 0;
+                try (PreparedStatement stmt = conn.prepareStatement(selectSql())) {
+                    int i = 1;
+                    stmt.setLong(i++, watermark);
+                    for (Long gap : gaps.keySet()) {
+                        stmt.setLong(i++, gap);
+                    }
+                    stmt.setInt(i, BATCH_SIZE);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            read++;
+                            if (accept(rs.getLong("version"))
+                                    && !ChangeLog.NODE_ID.equals(rs.getString("node_id"))) {
+                                String entityType = rs.getString("entity_type");
+                                evict(entityType, rs.getString("scope"));
+                                if (ChangeLog.APPOINTMENT.equals(entityType) && rs.getString("entity_id") != null) {
+                                    appointments.add(rs.getString("entity_id"));
+                                }
+                                applied++;
+                            }
+                        }
+                    }
+                }
+            } while (read == BATCH_SIZE);
+
+            expireGaps();
+            if (!appointments.isEmpty()) {
+                notifyAppointments(Collections.unmodifiableSet(appointments));
+            }
+            return applied;
+
+        } catch (SQLException e) {
+            if (!resync) {
+                Logger.logError("Failed to poll change log; caches will be cleared once it is readable", e);
+            }
+            resync = true;
+            return 0;
+        }
+    }
+
+    private String selectSql() {
+        StringBuilder sql = new StringBuilder("SELECT version, entity_type, entity_id, scope, node_id FROM ")
+                .append(ChangeLog.TABLE).append(" WHERE version > ?");
+        if (!gaps.isEmpty()) {
+            sql.append(" OR version IN (");
+            for (int i = 0; i < gaps.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(')');
+        }
+        return sql.append(" ORDER BY version LIMIT ?").toString();
+    }
+
+    /**
+     * Advance the watermark past a version, noting any versions it skipped.
+     * Returns false for a version already seen.
+     */
+    private boolean accept(long version) {
+        if (gaps.remove(version) != null) {
+            return true;
+        }
+        if (version <= watermark) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        for (long missing = watermark + 1; missing < version; missing++) {
+            if (gaps.size() == MAX_GAPS) {
+                // Too far behind to track one by one
+                resync = true;
+                break;
+            }
+            gaps.put(missing, now);
+        }
+        watermark = version;
+        return true;
+    }
+
+    private void expireGaps() {
+        long cutoff = System.currentTimeMillis() - GAP_WAIT_MILLIS;
+        Iterator<Long> it = gaps.values().iterator();
+        while (it.hasNext() && it.next() < cutoff) {
+            it.remove();
+        }
+    }
+
+    private static long maxVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM " + ChangeLog.TABLE)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // ================= Subscribers =================
+
+    /**
+     * Be told the IDs of appointments other instances changed, or null when
+     * changes were missed and everything should be reloaded. Called on the
+     * poller thread, so listeners must hand off any real work.
+     */
+    public void addAppointmentListener(Consumer<Set<String>> listener) {
+        appointmentListeners.add(listener);
+        wake();
+    }
+
+    public void removeAppointmentListener(Consumer<Set<String>> listener) {
+        appointmentListeners.remove(listener);
+    }
+
+    private void notifyAppointments(Set<String> appointmentIds) {
+        for (Consumer<Set<String>> listener : appointmentListeners) {
+            try {
+                listener.accept(appointmentIds);
+            } catch (RuntimeException e) {
+                Logger.logError("Appointment change listener failed", e);
+            }
+        }
+    }
+
+    // ================= Eviction =================
+
+    private void evict(String entityType, String scope) {
+        if (ChangeLog.DOCTOR.equals(entityType)) {
+            referenceData.invalidateDoctors();
+        } else if (ChangeLog.SERVICE.equals(entityType)) {
+            referenceData.invalidateServices();
+        } else if (ChangeLog.APPOINTMENT.equals(entityType) && scope != null) {
+            int split = scope.lastIndexOf('|');
+            try {
+                String doctorId = scope.substring(0, split);
+                LocalDate date = LocalDate.parse(scope.substring(split + 1));
+                availability.invalidate(doctorId, date);
+                calendar.invalidate(doctorId, date);
+            } catch (IndexOutOfBoundsException | DateTimeParseException e) {
+                Logger.logError("Ignoring malformed change log scope: " + scope, e);
+            }
+        }
+    }
+
+    private void evictAll() {
+        referenceData.invalidateDoctors();
+        referenceData.invalidateServices();
+        availability.clear();
+        calendar.invalidateAll();
+        Logger.log("Change log readable again; cleared cached doctors, services and availability");
+    }
+
+    /**
+     * Drop entries every instance has long since read
+     */
+    public int pruneOnce() {
+        String sql = "DELETE FROM " + ChangeLog.TABLE + " WHERE changed_at < NOW(3) - INTERVAL ? MINUTE";
+        try (Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, Config.CHANGE_LOG_RETENTION_MINUTES);
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            Logger.logError("Failed to prune change log", e);
+        }
+        return 0;
+    }
+
+    // ================= Lifecycle =================
+
+    // Scheduling has its own lock so a subscriber on the Event Dispatch Thread
+    // never waits behind a poll in progress
+    public void start() {
+        synchronized (scheduleLock) {
+            if (scheduler != null) {
+                return;
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "change-log-poller");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.scheduleWithFixedDelay(this::pruneOnce, 5, 60, TimeUnit.MINUTES);
+            delayMillis = Config.CHANGE_LOG_POLL_MILLIS;
+            schedule(0);
+        }
+    }
+
+    /**
+     * Poll soon and at the fastest rate again, e.g. when a dashboard opens
+     */
+    public void wake() {
+        synchronized (scheduleLock) {
+            if (scheduler == null || delayMillis <= Config.CHANGE_LOG_POLL_MILLIS) {
+                return;
+            }
+            delayMillis = Config.CHANGE_LOG_POLL_MILLIS;
+            // A poll already running reschedules itself at the new rate
+            if (nextPoll != null && nextPoll.cancel(false)) {
+                schedule(0);
+            }
+        }
+    }
+
+    private void pollAndReschedule() {
+        int applied = pollOnce();
+        synchronized (scheduleLock) {
+            delayMillis = applied > 0
+                    ? Config.CHANGE_LOG_POLL_MILLIS
+                    : Math.min(delayMillis * 2, Math.max(Config.CHANGE_LOG_POLL_MILLIS, Config.CHANGE_LOG_IDLE_POLL_MILLIS));
+            schedule(delayMillis);
+        }
+    }
+
+    private void schedule(long delay) {
+        if (scheduler != null) {
+            nextPoll = scheduler.schedule(this::pollAndReschedule, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void shutdown() {
+        synchronized (scheduleLock) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+                nextPoll = null;
+            }
+        }
+    }
+}
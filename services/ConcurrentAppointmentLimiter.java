@@ -0,0 +1,217 @@
+package services;
+
+import UI.IAppointmentLimiter;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntSupplier;
+
+/**
+ * Lock-free AM/PM booking counters.
+ *
+ * Counters live in one AtomicLongArray indexed by epoch day (modulo the
+ * horizon) and half-day. Each cell packs the day it belongs to in the high
+ * 32 bits and the booked count in the low 32 bits. A cell still holding an
+ * older day reads as zero, so the ring never needs clearing. Reserving is a
+ * compare-and-set loop, and no check allocates.
+ *
+ * Days further apart than {@link #DEFAULT_HORIZON_DAYS} share a cell, so the
+ * horizon must cover the furthest date patients can book.
+ */
+public class ConcurrentAppointmentLimiter implements IAppointmentLimiter {
+
+    public static final int DEFAULT_HORIZON_DAYS = 512;
+
+    /**
+     * Booked count for a half-day from the system of record, used to seed a
+     * counter the first time its day is touched
+     */
+    public interface SeedSource {
+        /**
+         * @return the count, or {@link #UNKNOWN} if it could not be read
+         */
+        int bookedCount(LocalDate date, String timeSlot);
+    }
+
+    /** A seed that could not be read; the half-day stays unseeded and full */
+    public static final int UNKNOWN = -1;
+
+    private static final int AM = 0;
+    private static final int PM = 1;
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private final AtomicLongArray cells;
+    private final int horizonDays;
+    private final int maxAm;
+    private final int maxPm;
+    private volatile SeedSource seedSource;
+
+    public ConcurrentAppointmentLimiter(int maxAm, int maxPm) {
+        this(maxAm, maxPm, DEFAULT_HORIZON_DAYS);
+    }
+
+    public ConcurrentAppointmentLimiter(int maxAm, int maxPm, int horizonDays) {
+        this.maxAm = maxAm;
+        this.maxPm = maxPm;
+        this.horizonDays = horizonDays;
+        this.cells = new AtomicLongArray(horizonDays * 2);
+    }
+
+    public ConcurrentAppointmentLimiter withSeedSource(SeedSource seedSource) {
+        this.seedSource = seedSource;
+        return this;
+    }
+
+    // ================= IAppointmentLimiter =================
+
+    @Override
+    public boolean isSlotAvailable(LocalDate date, String timeSlot) {
+        return getAvailableSlots(date, timeSlot) > 0;
+    }
+
+    @Override
+    public int getAvailableSlots(LocalDate date, String timeSlot) {
+        if (!seed(date, timeSlot)) {
+            return 0;
+        }
+        int half = half(timeSlot);
+        long stamp = stamp(date);
+        return capacity(half) - count(cells.get(index(stamp, half)), stamp);
+    }
+
+    @Override
+    public boolean checkDailyLimit(LocalDate date, String timeSlot) {
+        return isSlotAvailable(date, timeSlot);
+    }
+
+    // ================= Reservations =================
+
+    /**
+     * Take one unit of capacity, or return false if the half-day is full or its
+     * booked count could not be read
+     */
+    @Override
+    public boolean tryReserve(LocalDate date, String timeSlot) {
+        if (!seed(date, timeSlot)) {
+            return false;
+        }
+        int half = half(timeSlot);
+        int max = capacity(half);
+        long stamp = stamp(date);
+        int i = index(stamp, half);
+
+        while (true) {
+            long cell = cells.get(i);
+            int booked = count(cell, stamp);
+            if (booked >= max) {
+                return false;
+            }
+            if (cells.compareAndSet(i, cell, pack(stamp, booked + 1))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back one unit taken by {@link #tryReserve}; never drops below zero
+     */
+    @Override
+    public void release(LocalDate date, String timeSlot) {
+        int half = half(timeSlot);
+        long stamp = stamp(date);
+        int i = index(stamp, half);
+
+        while (true) {
+            long cell = cells.get(i);
+            int booked = count(cell, stamp);
+            if (booked == 0) {
+                return;
+            }
+            if (cells.compareAndSet(i, cell, pack(stamp, booked - 1))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Counters already include the booking once it was reserved
+     */
+    @Override
+    public void confirm(LocalDate date, String timeSlot) {
+    }
+
+    @Override
+    public void cancelBooking(LocalDate date, String timeSlot) {
+        release(date, timeSlot);
+    }
+
+    /**
+     * Make sure the cell tracks this date. A failed read leaves it unseeded, so
+     * the next call tries again, and reports false so callers fail closed.
+     */
+    private boolean seed(LocalDate date, String timeSlot) {
+        SeedSource source = seedSource;
+        if (source == null) {
+            return true;
+        }
+        // Checked here first so an already seeded cell allocates nothing
+        long stamp = stamp(date);
+        if ((cells.get(index(stamp, half(timeSlot))) >>> 32) == stamp) {
+            return true;
+        }
+        return ensureLoaded(date, timeSlot, () -> source.bookedCount(date, timeSlot));
+    }
+
+    /**
+     * Seed a half-day from the database the first time it is seen. The loader is
+     * only called when the cell does not already track this date, and a count
+     * recorded concurrently by another thread wins over the loaded one. A loader
+     * returning {@link #UNKNOWN} (or any negative) leaves the cell unseeded.
+     *
+     * @return whether the cell now tracks this date
+     */
+    public boolean ensureLoaded(LocalDate date, String timeSlot, IntSupplier loader) {
+        int half = half(timeSlot);
+        long stamp = stamp(date);
+        int i = index(stamp, half);
+
+        long cell = cells.get(i);
+        if ((cell >>> 32) == stamp) {
+            return true;
+        }
+        int booked = loader.getAsInt();
+        if (booked < 0) {
+            return false;
+        }
+        // Losing the race means another thread seeded it
+        cells.compareAndSet(i, cell, pack(stamp, booked));
+        return true;
+    }
+
+    // ================= Packing =================
+
+    /** Day + 1, so an untouched zero cell never matches a real date */
+    private static long stamp(LocalDate date) {
+        return (date.toEpochDay() + 1) & COUNT_MASK;
+    }
+
+    private int index(long stamp, int half) {
+        return (int) (stamp % horizonDays) * 2 + half;
+    }
+
+    private static int count(long cell, long stamp) {
+        return (cell >>> 32) == stamp ? (int) (cell & COUNT_MASK) : 0;
+    }
+
+    private static long pack(long stamp, int count) {
+        return (stamp << 32) | (count & COUNT_MASK);
+    }
+
+    private static int half(String timeSlot) {
+        return "AM".equals(timeSlot) ? AM : PM;
+    }
+
+    private int capacity(int half) {
+        return half == AM ? maxAm : maxPm;
+    }
+}
@@ -6,14 +6,32 @@ import models.TimeSlot;
 import utils.Logger;
 
 import java.sql.*;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 public class DoctorServiceDB {
+
+    private final ReferenceDataCache referenceData = ReferenceDataCache.shared();
+    private final AvailabilityCache availability = AvailabilityCache.shared();
+    private final CapacityCalendar calendar = CapacityCalendar.shared();
     
     public List<Doctor> getAllDoctors(boolean activeOnly) {
+        return referenceData.getDoctors(activeOnly, () -> queryDoctors(activeOnly));
+    }
+
+    /**
+     * Doctor ID to name lookup, served from the shared roster cache
+     */
+    public Map<String, String> getDoctorNames() {
+        return referenceData.getDoctorNames(() -> getAllDoctors(false));
+    }
+
+    private List<Doctor> queryDoctors(boolean activeOnly) {
         List<Doctor> doctors = new ArrayList<>();
         String sql = activeOnly ? 
             "SELECT * FROM doctors WHERE is_active = TRUE ORDER BY name" :
@@ -29,6 +47,7 @@ public class DoctorServiceDB {
             
         } catch (SQLException e) {
             Logger.logError("Failed to get doctors", e);
+            return null;
         }
         
         return doctors;
@@ -55,105 +74,141 @@ public class DoctorServiceDB {
         return null;
     }
     
+    /**
+     * Active doctors working the given day and half-day, filtered from the cached roster
+     */
     public List<Doctor> getAvailableDoctors(LocalDate date, String timeSlot) {
         List<Doctor> doctors = new ArrayList<>();
-        String dayOfWeek = date.getDayOfWeek().toString().substring(0, 3);
-        
-        String sql = """
-            SELECT * FROM doctors 
-            WHERE is_active = TRUE
-            AND FIND_IN_SET(?, available_days) > 0
-            AND (
-                (? = 'AM' AND available_am = TRUE) OR 
-                (? = 'PM' AND available_pm = TRUE)
-            )
-        """;
-        
-        try (Connection conn = DataBaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, dayOfWeek);
-            pstmt.setString(2, timeSlot);
-            pstmt.setString(3, timeSlot);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    doctors.add(mapResultSetToDoctor(rs));
-                }
+        String dayOfWeek = dayCode(date);
+        boolean am = "AM".equals(timeSlot);
+        boolean pm = "PM".equals(timeSlot);
+
+        for (Doctor d : getAllDoctors(true)) {
+            if (d.getAvailableDays().contains(dayOfWeek)
+                    && ((am && d.isAvailableAM()) || (pm && d.isAvailablePM()))) {
+                doctors.add(d);
             }
-            
-        } catch (SQLException e) {
-            Logger.logError("Failed to get available doctors for " + date + " " + timeSlot, e);
         }
-        
         return doctors;
     }
     
     public List<TimeSlot> getAvailableTimeSlots(String doctorId, LocalDate date) {
+        return getAvailableTimeSlots(doctorId, date, null);
+    }
+
+    /**
+     * Slots for a doctor-day as seen by one user: times held by anyone else in the
+     * middle of booking show as taken, the viewer's own hold stays open
+     */
+    public List<TimeSlot> getAvailableTimeSlots(String doctorId, LocalDate date, String viewerId) {
         List<TimeSlot> timeSlots = new ArrayList<>();
         
-        Doctor doctor = getDoctorById(doctorId);
+        Doctor doctor = findDoctor(doctorId);
         if (doctor == null) {
             return timeSlots;
         }
         
-        String dayOfWeek = date.getDayOfWeek().toString().substring(0, 3);
-        List<String> availableDays = doctor.getAvailableDays();
-        
-        if (!availableDays.contains(dayOfWeek)) {
+        if (!doctor.getAvailableDays().contains(dayCode(date))) {
             return timeSlots;
         }
         
-        // Generate time slots based on doctor availability
-        List<String> amSlots = Arrays.asList("08:00", "08:30", "09:00", "09:30", "10:00", "10:30", "11:00", "11:30");
-        List<String> pmSlots = Arrays.asList("13:00", "13:30", "14:00", "14:30", "15:00", "15:30", "16:00", "16:30");
+        // Booked slots come from the in-memory cache; a failed load shows every slot as open
+        Integer booked = availability.getBookedMask(doctorId, date, () -> loadBookedMask(doctorId, date));
+        int mask = (booked != null ? booked : 0) | SlotHoldManager.shared().heldMask(doctorId, date, viewerId);
         
-        // Check for booked slots
+        int first = doctor.isAvailableAM() ? 0 : AvailabilityCache.AM_SLOTS;
+        int last = doctor.isAvailablePM() ? AvailabilityCache.SLOTS_PER_DAY : AvailabilityCache.AM_SLOTS;
+        for (int i = first; i < last; i++) {
+            TimeSlot slot = new TimeSlot(AvailabilityCache.slotTime(i).toString());
+            slot.setAvailable((mask & (1 << i)) == 0);
+            timeSlots.add(slot);
+        }
+        
+        return timeSlots;
+    }
+
+    private Integer loadBookedMask(String doctorId, LocalDate date) {
         String sql = """
             SELECT appointment_time 
             FROM appointments 
             WHERE doctor_id = ? 
             AND appointment_date = ?
-            AND status NOT IN ('CANCELLED')
+            AND status <> ?
         """;
         
-        List<String> bookedTimes = new ArrayList<>();
-        
+        int mask = 0;
         try (Connection conn = DataBaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, doctorId);
             pstmt.setDate(2, Date.valueOf(date));
+            pstmt.setString(3, AppointmentStatus.CANCELLED.name());
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    bookedTimes.add(rs.getTime("appointment_time").toString().substring(0, 5));
+                    int slot = AvailabilityCache.slotIndex(rs.getTime("appointment_time").toLocalTime());
+                    if (slot >= 0) {
+                        mask |= 1 << slot;
+                    }
                 }
             }
             
         } catch (SQLException e) {
             Logger.logError("Failed to get booked time slots", e);
+            return null;
         }
         
-        // Add AM slots if available
-        if (doctor.isAvailableAM()) {
-            for (String time : amSlots) {
-                TimeSlot slot = new TimeSlot(time);
-                slot.setAvailable(!bookedTimes.contains(time));
-                timeSlots.add(slot);
+        calendar.putBookedMask(doctorId, date, mask);
+        return mask;
+    }
+
+    /**
+     * Earliest open slot for a doctor within the next {@code days} days, or null.
+     * Days not yet in the capacity calendar are loaded once; the scan itself runs
+     * over the calendar's packed rows.
+     */
+    public LocalDateTime findNextFreeSlot(String doctorId, LocalDate from, int days) {
+        Doctor doctor = findDoctor(doctorId);
+        if (doctor == null) {
+            return null;
+        }
+
+        int[] workingMaskByDow = new int[7];
+        int shiftMask = (doctor.isAvailableAM() ? AvailabilityCache.AM_MASK : 0)
+                | (doctor.isAvailablePM() ? AvailabilityCache.PM_MASK : 0);
+        for (DayOfWeek dow : DayOfWeek.values()) {
+            if (doctor.getAvailableDays().contains(dow.toString().substring(0, 3))) {
+                workingMaskByDow[dow.getValue() - 1] = shiftMask;
             }
         }
-        
-        // Add PM slots if available
-        if (doctor.isAvailablePM()) {
-            for (String time : pmSlots) {
-                TimeSlot slot = new TimeSlot(time);
-                slot.setAvailable(!bookedTimes.contains(time));
-                timeSlots.add(slot);
+
+        for (int i = 0; i < days; i++) {
+            LocalDate date = from.plusDays(i);
+            if (workingMaskByDow[date.getDayOfWeek().getValue() - 1] != 0
+                    && calendar.getBookedMask(doctorId, date) == null) {
+                loadBookedMask(doctorId, date);
             }
         }
-        
-        return timeSlots;
+
+        int found = calendar.findFirstFree(doctorId, from, days, workingMaskByDow);
+        if (found < 0) {
+            return null;
+        }
+        return LocalDateTime.of(from.plusDays(found / AvailabilityCache.SLOTS_PER_DAY),
+                AvailabilityCache.slotTime(found % AvailabilityCache.SLOTS_PER_DAY));
+    }
+
+    private Doctor findDoctor(String doctorId) {
+        for (Doctor d : getAllDoctors(false)) {
+            if (d.getDoctorId().equals(doctorId)) {
+                return d;
+            }
+        }
+        return getDoctorById(doctorId);
+    }
+
+    private static String dayCode(LocalDate date) {
+        return date.getDayOfWeek().toString().substring(0, 3);
     }
     
     public Doctor addDoctor(String name, String specialization, List<String> availableDays, 
@@ -192,6 +247,8 @@ public class DoctorServiceDB {
                 doctor.setAvailableAM(availableAM);
                 doctor.setAvailablePM(availablePM);
                 
+                referenceData.invalidateDoctors();
+                ChangeLog.record(conn, ChangeLog.DOCTOR, doctorId, null);
                 Logger.log("Doctor added: " + name);
                 return doctor;
             }
@@ -230,6 +287,8 @@ public class DoctorServiceDB {
             int rowsAffected = pstmt.executeUpdate();
             
             if (rowsAffected > 0) {
+                referenceData.invalidateDoctors();
+                ChangeLog.record(conn, ChangeLog.DOCTOR, doctorId, null);
                 Logger.log("Doctor updated: " + doctorId);
                 return true;
             }
@@ -252,6 +311,8 @@ public class DoctorServiceDB {
             int rowsAffected = pstmt.executeUpdate();
             
             if (rowsAffected > 0) {
+                referenceData.invalidateDoctors();
+                ChangeLog.record(conn, ChangeLog.DOCTOR, doctorId, null);
                 Logger.log("Doctor deleted: " + doctorId);
                 return true;
             }
@@ -0,0 +1,334 @@
+package services;
+
+import UI.IAppointmentLimiter;
+import utils.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appointment limiter for several DermAppoint instances sharing one database.
+ *
+ * Each node leases small blocks of booking tokens per half-day from the
+ * {@link CapacityLeaseCoordinator} and spends them locally without touching
+ * the database. The coordinator never grants more than the cap minus bookings
+ * minus live leases, so the global cap holds exactly; idle tokens are handed
+ * back when their lease runs out.
+ *
+ * A lease is treated as expired locally a safety margin before the database
+ * would expire it, measured from before the grant request was sent, so a
+ * token is never spent after another node could have been given it. A lease
+ * with reserved-but-unstored bookings (e.g. a slot hold) is renewed instead of
+ * handed back.
+ */
+public class LeasedAppointmentLimiter implements IAppointmentLimiter {
+
+    private static final long SWEEP_MILLIS = 1000;
+
+    private final CapacityLeaseCoordinator coordinator;
+    private final int maxAm;
+    private final int maxPm;
+    private final int blockSize;
+    private final int ttlSeconds;
+    private final long marginMillis;
+
+    private final Map<Long, HalfDay> halfDays = new ConcurrentHashMap<>();
+    private ScheduledExecutorService sweeper;
+
+    public LeasedAppointmentLimiter(int maxAm, int maxPm, int blockSize, int ttlSeconds) {
+        this(new CapacityLeaseCoordinator(ManagementFactory.getRuntimeMXBean().getName()),
+                maxAm, maxPm, blockSize, ttlSeconds);
+    }
+
+    public LeasedAppointmentLimiter(CapacityLeaseCoordinator coordinator, int maxAm, int maxPm,
+                                    int blockSize, int ttlSeconds) {
+        this.coordinator = coordinator;
+        this.maxAm = maxAm;
+        this.maxPm = maxPm;
+        this.blockSize = Math.max(1, blockSize);
+        this.ttlSeconds = ttlSeconds;
+        // Leave a quarter of the lease, at least two seconds, for in-flight inserts
+        this.marginMillis = Math.max(2000, TimeUnit.SECONDS.toMillis(ttlSeconds) / 4);
+    }
+
+    /**
+     * One lease granted to this node
+     */
+    private static final class Lease {
+        final String leaseId;
+        int available;
+        int outstanding;
+        long validUntil;
+
+        Lease(String leaseId, int tokens, long validUntil) {
+            this.leaseId = leaseId;
+            this.available = tokens;
+            this.validUntil = validUntil;
+        }
+    }
+
+    /**
+     * Leases for one half-day. The newest lease hands out tokens; older ones are
+     * only kept alive until their outstanding reservations are stored or released.
+     */
+    private final class HalfDay {
+        final LocalDate date;
+        final String timeSlot;
+        final List<Lease> leases = new ArrayList<>();
+        boolean retired;
+
+        HalfDay(LocalDate date, String timeSlot) {
+            this.date = date;
+            this.timeSlot = timeSlot;
+        }
+
+        /**
+         * Null if the sweeper retired this entry; the caller retries with a fresh one
+         */
+        synchronized Boolean tryReserve() {
+            if (retired) {
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            for (Lease lease : leases) {
+                if (lease.available > 0 && lease.validUntil > now) {
+                    lease.available--;
+                    lease.outstanding++;
+                    return true;
+                }
+            }
+
+            // Out of local tokens: ask the coordinator for another block
+            long requestedAt = System.currentTimeMillis();
+            try {
+                CapacityLeaseCoordinator.Grant grant =
+                        coordinator.acquire(date, timeSlot, blockSize, capacity(timeSlot), ttlSeconds);
+                if (grant == null) {
+                    return false;
+                }
+                Lease lease = new Lease(grant.getLeaseId(), grant.getTokens(), validUntil(requestedAt));
+                lease.available--;
+                lease.outstanding++;
+                leases.add(lease);
+                return true;
+            } catch (SQLException e) {
+                Logger.logError("Failed to lease booking capacity for " + date + " " + timeSlot, e);
+                return false;
+            }
+        }
+
+        synchronized void release() {
+            long now = System.currentTimeMillis();
+            for (Lease lease : leases) {
+                if (lease.outstanding > 0) {
+                    lease.outstanding--;
+                    if (lease.validUntil > now) {
+                        lease.available++;
+                    }
+                    return;
+                }
+            }
+        }
+
+        synchronized void confirm() {
+            for (Lease lease : leases) {
+                if (lease.outstanding > 0) {
+                    lease.outstanding--;
+                    return;
+                }
+            }
+        }
+
+        synchronized int localTokens() {
+            long now = System.currentTimeMillis();
+            int tokens = 0;
+            for (Lease lease : leases) {
+                if (lease.validUntil > now) {
+                    tokens += lease.available;
+                }
+            }
+            return tokens;
+        }
+
+        /**
+         * Renew or hand back leases nearing their local deadline. Returns true once
+         * nothing is left for this half-day.
+         */
+        synchronized boolean sweep() {
+            long now = System.currentTimeMillis();
+            List<Lease> done = new ArrayList<>();
+            for (Lease lease : leases) {
+                if (lease.validUntil - SWEEP_MILLIS * 2 > now) {
+                    continue;
+                }
+                try {
+                    if (lease.outstanding > 0) {
+                        long requestedAt = System.currentTimeMillis();
+                        // Stop handing out this lease's idle tokens; keep only what is in flight
+                        lease.available = 0;
+                        if (coordinator.renew(lease.leaseId, lease.outstanding, ttlSeconds)) {
+                            lease.validUntil = validUntil(requestedAt);
+                        } else {
+                            Logger.log("Capacity lease " + lease.leaseId + " expired with "
+                                    + lease.outstanding + " bookings in flight");
+                            done.add(lease);
+                        }
+                    } else {
+                        coordinator.giveBack(lease.leaseId);
+                        done.add(lease);
+                    }
+                } catch (SQLException e) {
+                    Logger.logError("Failed to renew or return capacity lease " + lease.leaseId, e);
+                    if (lease.validUntil <= now) {
+                        // The database expires it on its own; just stop using it
+                        done.add(lease);
+                    }
+                }
+            }
+            leases.removeAll(done);
+            retired = leases.isEmpty();
+            return retired;
+        }
+
+        synchronized void giveBackAll() {
+            for (Lease lease : leases) {
+                try {
+                    coordinator.giveBack(lease.leaseId);
+                } catch (SQLException e) {
+                    Logger.logError("Failed to return capacity lease " + lease.leaseId, e);
+                }
+            }
+            leases.clear();
+        }
+    }
+
+    // ================= IAppointmentLimiter =================
+
+    @Override
+    public boolean isSlotAvailable(LocalDate date, String timeSlot) {
+        return getAvailableSlots(date, timeSlot) > 0;
+    }
+
+    /**
+     * Capacity across all nodes plus what this node already holds; reads the database
+     */
+    @Override
+    public int getAvailableSlots(LocalDate date, String timeSlot) {
+        HalfDay halfDay = halfDays.get(key(date, timeSlot));
+        int local = halfDay != null ? halfDay.localTokens() : 0;
+        try {
+            return Math.max(0, coordinator.available(date, timeSlot, capacity(timeSlot))) + local;
+        } catch (SQLException e) {
+            Logger.logError("Failed to read booking capacity for " + date + " " + timeSlot, e);
+            return local;
+        }
+    }
+
+    @Override
+    public boolean checkDailyLimit(LocalDate date, String timeSlot) {
+        return isSlotAvailable(date, timeSlot);
+    }
+
+    @Override
+    public boolean tryReserve(LocalDate date, String timeSlot) {
+        String slot = normalize(timeSlot);
+        long key = key(date, slot);
+        while (true) {
+            HalfDay halfDay = halfDays.computeIfAbsent(key, k -> new HalfDay(date, slot));
+            Boolean reserved = halfDay.tryReserve();
+            if (reserved != null) {
+                return reserved;
+            }
+            halfDays.remove(key, halfDay);
+        }
+    }
+
+    @Override
+    public void release(LocalDate date, String timeSlot) {
+        HalfDay halfDay = halfDays.get(key(date, timeSlot));
+        if (halfDay != null) {
+            halfDay.release();
+        }
+    }
+
+    @Override
+    public void confirm(LocalDate date, String timeSlot) {
+        HalfDay halfDay = halfDays.get(key(date, timeSlot));
+        if (halfDay != null) {
+            halfDay.confirm();
+        }
+    }
+
+    /**
+     * The freed place shows up in the database count, so other nodes see it on their next grant
+     */
+    @Override
+    public void cancelBooking(LocalDate date, String timeSlot) {
+    }
+
+    // ================= Lifecycle =================
+
+    public synchronized LeasedAppointmentLimiter start() {
+        if (sweeper != null) {
+            return this;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "capacity-lease-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_MILLIS, SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                coordinator.purgeExpired();
+            } catch (SQLException e) {
+                Logger.logError("Failed to purge expired capacity leases", e);
+            }
+        }, 1, 60, TimeUnit.MINUTES);
+        return this;
+    }
+
+    /**
+     * Stop the sweeper and hand every lease back so other nodes can use the tokens
+     */
+    public synchronized void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+        for (HalfDay halfDay : halfDays.values()) {
+            halfDay.giveBackAll();
+        }
+        halfDays.clear();
+    }
+
+    void sweep() {
+        halfDays.entrySet().removeIf(entry -> entry.getValue().sweep());
+    }
+
+    // ================= Helpers =================
+
+    private long validUntil(long requestedAt) {
+        return requestedAt + TimeUnit.SECONDS.toMillis(ttlSeconds) - marginMillis;
+    }
+
+    private int capacity(String timeSlot) {
+        return "AM".equals(timeSlot) ? maxAm : maxPm;
+    }
+
+    private static String normalize(String timeSlot) {
+        return "AM".equals(timeSlot) ? "AM" : "PM";
+    }
+
+    private static long key(LocalDate date, String timeSlot) {
+        return date.toEpochDay() * 2 + ("AM".equals(timeSlot) ? 0 : 1);
+    }
+}
@@ -0,0 +1,674 @@
+package services;
+
+import db.DataBaseConnection;
+import db.SchemaMigrations;
+import models.Patient;
+import utils.Config;
+import utils.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory search over patients by name, email and phone.
+ *
+ * Every patient is split into lowercase terms (name words, the email and its
+ * local parts, the phone digits). Terms live in an array-backed trie whose
+ * term nodes list the patients using them, so type-ahead is a walk down the
+ * typed prefix and a bounded scan of the subtree. Typos fall back to padded
+ * bigrams of the trie's terms, scored by Dice similarity against the query
+ * word; matching is per distinct term rather than per patient, so the scan
+ * stays small even with many patients.
+ *
+ * The directory is built from a streamed query, or from the snapshot written
+ * on shutdown plus the patients changed since, and grows as patients register.
+ * A snapshot load also streams the current patient IDs and drops snapshot
+ * entries for users deleted or no longer patients. Deleting the snapshot file
+ * forces a full rebuild on the next start.
+ */
+public class PatientDirectory {
+
+    private static final int MAGIC = 0x44415049; // "DAPI"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    private static final double MIN_SIMILARITY = 0.4;
+    private static final int MIN_FUZZY_LENGTH = 3;
+    private static final char PAD = '$';
+
+    /**
+     * One patient as shown in search results
+     */
+    public static final class Entry {
+        private final String userId;
+        private final String fullName;
+        private final String email;
+        private final String phone;
+        private final String[] terms;
+        private final int fuzzyTerms;
+
+        public Entry(String userId, String fullName, String email, String phone) {
+            this.userId = userId;
+            this.fullName = fullName != null ? fullName : "";
+            this.email = email != null ? email : "";
+            this.phone = phone != null ? phone : "";
+            this.terms = termsOf(this.fullName, this.email, this.phone);
+            this.fuzzyTerms = countWords(this.terms);
+        }
+
+        public String getUserId() { return userId; }
+        public String getFullName() { return fullName; }
+        public String getEmail() { return email; }
+        public String getPhone() { return phone; }
+
+        private boolean sameAs(Entry other) {
+            return fullName.equals(other.fullName) && email.equals(other.email) && phone.equals(other.phone);
+        }
+    }
+
+    private final Path snapshotFile;
+
+    private Index index = new Index();
+    private long watermark;
+    private List<Entry> pendingDuringLoad;
+
+    public PatientDirectory() {
+        this(Paths.get(Config.PATIENT_INDEX_FILE));
+    }
+
+    public PatientDirectory(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    // ================= Search =================
+
+    /**
+     * Patients matching every word of the query by prefix, then close spellings
+     * of the longest word, up to {@code limit} results
+     */
+    public synchronized List<Entry> search(String query, int limit) {
+        String[] tokens = tokens(query);
+        if (tokens.length == 0 || limit <= 0) {
+            return new ArrayList<>();
+        }
+        return index.search(tokens, limit);
+    }
+
+    public synchronized int size() {
+        return index.liveCount;
+    }
+
+    // ================= Updates =================
+
+    /**
+     * Add or refresh one patient, e.g. right after registration
+     */
+    public synchronized void add(Patient patient) {
+        if (patient == null || patient.getUserId() == null) {
+            return;
+        }
+        Entry entry = new Entry(patient.getUserId(), patient.getFullName(), patient.getEmail(), patient.getPhone());
+        index.put(entry);
+        if (pendingDuringLoad != null) {
+            pendingDuringLoad.add(entry);
+        }
+    }
+
+    /**
+     * Build the directory from the snapshot plus patients changed since it was
+     * written, or from a full query when there is no usable snapshot. The new
+     * index is swapped in whole; registrations made meanwhile are replayed.
+     */
+    public boolean load() {
+        long startedAt = System.currentTimeMillis();
+        synchronized (this) {
+            pendingDuringLoad = new ArrayList<>();
+        }
+
+        Index loaded = new Index();
+        long[] since = { readSnapshot(loaded) };
+        boolean ok = streamPatients(loaded, since);
+
+        synchronized (this) {
+            for (Entry entry : pendingDuringLoad) {
+                loaded.put(entry);
+            }
+            pendingDuringLoad = null;
+            if (ok || loaded.liveCount > 0) {
+                index = loaded;
+                watermark = since[0];
+            }
+            Logger.log("Patient directory loaded " + index.liveCount + " patients in "
+                    + (System.currentTimeMillis() - startedAt) + " ms");
+        }
+        return ok;
+    }
+
+    private static boolean streamPatients(Index into, long[] since) {
+        try (Connection conn = DataBaseConnection.getConnection()) {
+            boolean tracked = SchemaMigrations.hasColumn(conn, "users", SchemaMigrations.CHANGE_COLUMN);
+            boolean incremental = tracked && since[0] > 0;
+            String sql = "SELECT user_id, full_name, email, phone"
+                    + (tracked ? ", " + SchemaMigrations.CHANGE_COLUMN : "")
+                    + " FROM users WHERE role = 'PATIENT'"
+                    + (incremental ? " AND " + SchemaMigrations.CHANGE_COLUMN + " >= ?" : "");
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // Connector/J streams row by row instead of buffering the whole table
+                stmt.setFetchSize(Integer.MIN_VALUE);
+                if (incremental) {
+                    stmt.setTimestamp(1, new Timestamp(since[0]));
+                } else {
+                    into.clear();
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        into.put(new Entry(rs.getString("user_id"), rs.getString("full_name"),
+                                rs.getString("email"), rs.getString("phone")));
+                        if (tracked) {
+                            Timestamp changed = rs.getTimestamp(SchemaMigrations.CHANGE_COLUMN);
+                            if (changed != null) {
+                                since[0] = Math.max(since[0], changed.getTime());
+                            }
+                        }
+                    }
+                }
+            }
+            if (incremental) {
+                dropMissing(conn, into);
+            }
+            return true;
+
+        } catch (SQLException e) {
+            Logger.logError("Failed to load patient directory", e);
+            return false;
+        }
+    }
+
+    /**
+     * Changed-since reads cannot see deletions or role changes, so remove
+     * entries whose user is no longer a patient
+     */
+    private static void dropMissing(Connection conn, Index into) throws SQLException {
+        Set<String> current = new HashSet<>(Math.max(16, into.liveCount * 2));
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT user_id FROM users WHERE role = 'PATIENT'",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    current.add(rs.getString(1));
+                }
+            }
+        }
+        List<String> gone = new ArrayList<>();
+        for (String userId : into.docById.keySet()) {
+            if (!current.contains(userId)) {
+                gone.add(userId);
+            }
+        }
+        for (String userId : gone) {
+            into.remove(userId);
+        }
+        if (!gone.isEmpty()) {
+            Logger.log("Patient directory dropped " + gone.size() + " users no longer registered as patients");
+        }
+    }
+
+    // ================= Snapshot =================
+
+    /**
+     * Write every patient to the snapshot file, replacing the previous one whole
+     */
+    public synchronized boolean saveSnapshot() {
+        List<byte[][]> rows = new ArrayList<>(index.liveCount);
+        long size = HEADER_BYTES;
+        for (int doc = 0; doc < index.entries.size(); doc++) {
+            if (index.removed.get(doc)) {
+                continue;
+            }
+            Entry e = index.entries.get(doc);
+            byte[][] row = { utf8(e.userId), utf8(e.fullName), utf8(e.email), utf8(e.phone) };
+            for (byte[] field : row) {
+                size += Short.BYTES + field.length;
+            }
+            rows.add(row);
+        }
+
+        try {
+            if (snapshotFile.getParent() != null) {
+                Files.createDirectories(snapshotFile.getParent());
+            }
+            Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            Files.deleteIfExists(tmp);
+            try (FileChannel channel = FileChannel.open(tmp,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                out.putInt(MAGIC).putInt(VERSION).putInt(rows.size()).putLong(watermark);
+                out.position(HEADER_BYTES);
+                for (byte[][] row : rows) {
+                    for (byte[] field : row) {
+                        out.putShort((short) field.length).put(field);
+                    }
+                }
+                out.force();
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+
+        } catch (IOException e) {
+            Logger.logError("Failed to write patient directory snapshot " + snapshotFile, e);
+            return false;
+        }
+    }
+
+    /**
+     * Fill an index from the snapshot; returns its watermark, or 0 without a usable one
+     */
+    private long readSnapshot(Index into) {
+        if (!Files.exists(snapshotFile)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return 0;
+            }
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                Logger.log("Ignoring patient directory snapshot with an unknown layout: " + snapshotFile);
+                return 0;
+            }
+            int count = in.getInt();
+            long since = in.getLong();
+            in.position(HEADER_BYTES);
+            for (int i = 0; i < count; i++) {
+                into.put(new Entry(readString(in), readString(in), readString(in), readString(in)));
+            }
+            return since;
+
+        } catch (IOException | RuntimeException e) {
+            Logger.logError("Failed to read patient directory snapshot " + snapshotFile, e);
+            into.clear();
+            return 0;
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= 0xFFFF ? bytes : Arrays.copyOf(bytes, 0xFFFF);
+    }
+
+    // ================= Terms =================
+
+    /**
+     * Name words and email local parts first, as only those are matched by
+     * spelling; then the whole email and the phone digits, matched by prefix only
+     */
+    private static String[] termsOf(String fullName, String email, String phone) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String word : tokens(fullName)) {
+            terms.add(word);
+        }
+        String mail = email.trim().toLowerCase();
+        int at = mail.indexOf('@');
+        for (String part : tokens(at >= 0 ? mail.substring(0, at) : mail)) {
+            terms.add(part);
+        }
+        if (!mail.isEmpty()) {
+            terms.add(mail);
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            if (Character.isDigit(phone.charAt(i))) {
+                digits.append(phone.charAt(i));
+            }
+        }
+        if (digits.length() > 0) {
+            terms.add(digits.toString());
+        }
+        return terms.toArray(new String[0]);
+    }
+
+    private static int countWords(String[] terms) {
+        int n = 0;
+        while (n < terms.length && terms[n].indexOf('@') < 0 && !isDigits(terms[n])) {
+            n++;
+        }
+        return n;
+    }
+
+    private static boolean isDigits(String term) {
+        for (int i = 0; i < term.length(); i++) {
+            if (!Character.isDigit(term.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String[] tokens(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String trimmed = text.trim().toLowerCase();
+        if (trimmed.contains("@")) {
+            // Keep a typed email whole so it prefix-matches the stored one
+            return new String[] { trimmed };
+        }
+        List<String> out = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= trimmed.length(); i++) {
+            boolean wordChar = i < trimmed.length() && Character.isLetterOrDigit(trimmed.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                out.add(trimmed.substring(start, i));
+                start = -1;
+            }
+        }
+        return out.toArray(new String[0]);
+    }
+
+    private static boolean matchesAll(Entry entry, String[] tokens, int skip) {
+        for (int i = 0; i < tokens.length; i++) {
+            if (i == skip) {
+                continue;
+            }
+            boolean found = false;
+            for (String term : entry.terms) {
+                if (term.startsWith(tokens[i])) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Distinct padded bigrams of a word, packed two chars to an int
+     */
+    private static int[] grams(String word) {
+        String padded = PAD + word + PAD;
+        int[] grams = new int[padded.length() - 1];
+        int n = 0;
+        outer:
+        for (int i = 0; i + 1 < padded.length(); i++) {
+            int gram = (padded.charAt(i) << 16) | padded.charAt(i + 1);
+            for (int j = 0; j < n; j++) {
+                if (grams[j] == gram) {
+                    continue outer;
+                }
+            }
+            grams[n++] = gram;
+        }
+        return Arrays.copyOf(grams, n);
+    }
+
+    // ================= Index =================
+
+    /**
+     * Patients plus the term trie and bigram index over them. Not thread-safe;
+     * the directory guards it.
+     */
+    private static final class Index {
+        final List<Entry> entries = new ArrayList<>();
+        final Map<String, Integer> docById = new HashMap<>();
+        final BitSet removed = new BitSet();
+        int liveCount;
+
+        // Trie nodes as parallel arrays; node 0 is the root
+        char[] label = new char[1024];
+        int[] firstChild = new int[1024];
+        int[] nextSibling = new int[1024];
+        IntList[] postings = new IntList[1024];
+        int[] gramCount = new int[1024];
+        int nodeCount = 1;
+
+        // Bigram to the term nodes containing it
+        final Map<Integer, IntList> termsByGram = new HashMap<>();
+
+        // Search scratch, reused between queries
+        int[] seen = new int[0];
+        int[] hits = new int[0];
+        int searchStamp;
+
+        void clear() {
+            entries.clear();
+            docById.clear();
+            removed.clear();
+            liveCount = 0;
+            Arrays.fill(firstChild, 0, nodeCount, 0);
+            Arrays.fill(nextSibling, 0, nodeCount, 0);
+            Arrays.fill(postings, 0, nodeCount, null);
+            Arrays.fill(gramCount, 0, nodeCount, 0);
+            nodeCount = 1;
+            termsByGram.clear();
+        }
+
+        void put(Entry entry) {
+            Integer existing = docById.get(entry.userId);
+            if (existing != null) {
+                if (entries.get(existing).sameAs(entry)) {
+                    return;
+                }
+                removed.set(existing);
+                liveCount--;
+            }
+            int doc = entries.size();
+            entries.add(entry);
+            docById.put(entry.userId, doc);
+            liveCount++;
+            for (int i = 0; i < entry.terms.length; i++) {
+                String term = entry.terms[i];
+                int node = insert(term);
+                if (postings[node] == null) {
+                    postings[node] = new IntList();
+                }
+                postings[node].add(doc);
+                if (i < entry.fuzzyTerms && gramCount[node] == 0) {
+                    int[] termGrams = grams(term);
+                    gramCount[node] = termGrams.length;
+                    for (int gram : termGrams) {
+                        termsByGram.computeIfAbsent(gram, g -> new IntList()).add(node);
+                    }
+                }
+            }
+        }
+
+        void remove(String userId) {
+            Integer doc = docById.remove(userId);
+            if (doc != null) {
+                removed.set(doc);
+                liveCount--;
+            }
+        }
+
+        private int insert(String term) {
+            int node = 0;
+            for (int i = 0; i < term.length(); i++) {
+                char c = term.charAt(i);
+                int child = child(node, c);
+                if (child == 0) {
+                    child = newNode(c);
+                    nextSibling[child] = firstChild[node];
+                    firstChild[node] = child;
+                }
+                node = child;
+            }
+            return node;
+        }
+
+        private int child(int node, char c) {
+            for (int child = firstChild[node]; child != 0; child = nextSibling[child]) {
+                if (label[child] == c) {
+                    return child;
+                }
+            }
+            return 0;
+        }
+
+        private int newNode(char c) {
+            if (nodeCount == label.length) {
+                int capacity = label.length * 2;
+                label = Arrays.copyOf(label, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                postings = Arrays.copyOf(postings, capacity);
+                gramCount = Arrays.copyOf(gramCount, capacity);
+            }
+            int node = nodeCount++;
+            label[node] = c;
+            return node;
+        }
+
+        private int find(String prefix) {
+            int node = 0;
+            for (int i = 0; i < prefix.length() && node >= 0; i++) {
+                int child = child(node, prefix.charAt(i));
+                node = child == 0 ? -1 : child;
+            }
+            return node;
+        }
+
+        List<Entry> search(String[] tokens, int limit) {
+            if (seen.length < entries.size()) {
+                seen = new int[Math.max(entries.size(), seen.length * 2)];
+            }
+            if (++searchStamp == 0) {
+                Arrays.fill(seen, 0);
+                searchStamp = 1;
+            }
+
+            int longest = 0;
+            for (int i = 1; i < tokens.length; i++) {
+                if (tokens[i].length() > tokens[longest].length()) {
+                    longest = i;
+                }
+            }
+
+            List<Entry> results = new ArrayList<>(limit);
+            int start = find(tokens[longest]);
+            if (start >= 0) {
+                collectSubtree(start, tokens, longest, results, limit);
+            }
+            if (results.size() < limit && tokens[longest].length() >= MIN_FUZZY_LENGTH) {
+                collectSimilar(tokens, longest, results, limit);
+            }
+            return results;
+        }
+
+        /**
+         * Depth-first over the prefix's subtree with an explicit stack
+         */
+        private void collectSubtree(int start, String[] tokens, int skip, List<Entry> results, int limit) {
+            IntList stack = new IntList();
+            stack.add(start);
+            while (stack.size > 0 && results.size() < limit) {
+                int node = stack.data[--stack.size];
+                if (postings[node] != null) {
+                    collectPostings(node, tokens, skip, results, limit);
+                }
+                for (int child = firstChild[node]; child != 0; child = nextSibling[child]) {
+                    stack.add(child);
+                }
+            }
+        }
+
+        private void collectSimilar(String[] tokens, int skip, List<Entry> results, int limit) {
+            if (hits.length < nodeCount) {
+                hits = new int[label.length];
+            }
+            int[] queryGrams = grams(tokens[skip]);
+            IntList touched = new IntList();
+            for (int gram : queryGrams) {
+                IntList terms = termsByGram.get(gram);
+                if (terms == null) {
+                    continue;
+                }
+                for (int i = 0; i < terms.size; i++) {
+                    int term = terms.data[i];
+                    if (hits[term]++ == 0) {
+                        touched.add(term);
+                    }
+                }
+            }
+
+            // Score each touched term, keep the close ones, best first
+            long[] ranked = new long[touched.size];
+            int n = 0;
+            for (int i = 0; i < touched.size; i++) {
+                int term = touched.data[i];
+                double dice = 2.0 * hits[term] / (queryGrams.length + gramCount[term]);
+                hits[term] = 0;
+                if (dice >= MIN_SIMILARITY) {
+                    ranked[n++] = ((long) (dice * 1_000_000) << 32) | term;
+                }
+            }
+            Arrays.sort(ranked, 0, n);
+            for (int i = n - 1; i >= 0 && results.size() < limit; i--) {
+                collectPostings((int) ranked[i], tokens, skip, results, limit);
+            }
+        }
+
+        private void collectPostings(int node, String[] tokens, int skip, List<Entry> results, int limit) {
+            IntList docs = postings[node];
+            for (int i = 0; i < docs.size && results.size() < limit; i++) {
+                int doc = docs.data[i];
+                if (seen[doc] == searchStamp || removed.get(doc)) {
+                    continue;
+                }
+                seen[doc] = searchStamp;
+                Entry entry = entries.get(doc);
+                if (matchesAll(entry, tokens, skip)) {
+                    results.add(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Growable int array, to keep postings free of boxed integers
+     */
+    private static final class IntList {
+        int[] data = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+    }
+}
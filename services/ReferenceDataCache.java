@@ -0,0 +1,180 @@
+package services;
+
+import models.Doctor;
+import models.Service;
+import utils.Config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache for the service catalog and the doctor roster.
+ *
+ * Both change a few times a month but are read on every dashboard refresh.
+ * Writers invalidate explicitly; the TTL is only a backstop for changes made
+ * outside this process.
+ */
+public class ReferenceDataCache {
+
+    private static final ReferenceDataCache SHARED =
+            new ReferenceDataCache(TimeUnit.MINUTES.toMillis(Config.REFERENCE_CACHE_TTL_MINUTES));
+
+    public static ReferenceDataCache shared() {
+        return SHARED;
+    }
+
+    private final long ttlMillis;
+
+    private final Slot<List<Doctor>> allDoctors = new Slot<>();
+    private final Slot<List<Doctor>> activeDoctors = new Slot<>();
+    private final Slot<Map<String, String>> doctorNames = new Slot<>();
+
+    private final Slot<List<Service>> allServices = new Slot<>();
+    private final Slot<List<Service>> activeServices = new Slot<>();
+    private final Slot<Map<String, String>> serviceNames = new Slot<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ReferenceDataCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    // ================= Doctors =================
+
+    /**
+     * A loader may return null to signal a failed query; that result is not cached.
+     */
+    public List<Doctor> getDoctors(boolean activeOnly, Supplier<List<Doctor>> loader) {
+        return orEmpty((activeOnly ? activeDoctors : allDoctors).get(() -> readOnly(loader.get())));
+    }
+
+    /**
+     * Doctor ID to name, for rendering appointment tables. Empty, and not cached,
+     * when the loader fails.
+     */
+    public Map<String, String> getDoctorNames(Supplier<List<Doctor>> allDoctorsLoader) {
+        return orEmpty(doctorNames.get(() -> {
+            List<Doctor> doctors = allDoctorsLoader.get();
+            if (doctors == null) {
+                return null;
+            }
+            Map<String, String> names = new HashMap<>();
+            for (Doctor d : doctors) {
+                names.put(d.getDoctorId(), d.getName());
+            }
+            return Collections.unmodifiableMap(names);
+        }));
+    }
+
+    public void invalidateDoctors() {
+        allDoctors.invalidate();
+        activeDoctors.invalidate();
+        doctorNames.invalidate();
+        invalidations.incrementAndGet();
+    }
+
+    // ================= Services =================
+
+    public List<Service> getServices(boolean activeOnly, Supplier<List<Service>> loader) {
+        return orEmpty((activeOnly ? activeServices : allServices).get(() -> readOnly(loader.get())));
+    }
+
+    /**
+     * Service ID to name, for rendering appointment tables. Empty, and not cached,
+     * when the loader fails.
+     */
+    public Map<String, String> getServiceNames(Supplier<List<Service>> allServicesLoader) {
+        return orEmpty(serviceNames.get(() -> {
+            List<Service> services = allServicesLoader.get();
+            if (services == null) {
+                return null;
+            }
+            Map<String, String> names = new HashMap<>();
+            for (Service s : services) {
+                names.put(s.getServiceId(), s.getServiceName());
+            }
+            return Collections.unmodifiableMap(names);
+        }));
+    }
+
+    public void invalidateServices() {
+        allServices.invalidate();
+        activeServices.invalidate();
+        serviceNames.invalidate();
+        invalidations.incrementAndGet();
+    }
+
+    private static <E> List<E> readOnly(List<E> list) {
+        return list == null ? null : Collections.unmodifiableList(list);
+    }
+
+    private static <E> List<E> orEmpty(List<E> list) {
+        return list == null ? Collections.emptyList() : list;
+    }
+
+    private static <K, V> Map<K, V> orEmpty(Map<K, V> map) {
+        return map == null ? Collections.emptyMap() : map;
+    }
+
+    // ================= Stats =================
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getInvalidations() { return invalidations.get(); }
+
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ReferenceDataCache[hits=%d, misses=%d, invalidations=%d, hitRatio=%.2f]",
+                getHits(), getMisses(), getInvalidations(), getHitRatio());
+    }
+
+    /**
+     * One cached value. A load that overlaps an invalidation is returned to its
+     * caller but not stored, so a write is never hidden by a slower stale read.
+     */
+    private final class Slot<T> {
+        private volatile T value;
+        private volatile long loadedAt;
+        private long generation;
+
+        T get(Supplier<T> loader) {
+            T current = value;
+            if (current != null && System.currentTimeMillis() - loadedAt < ttlMillis) {
+                hits.incrementAndGet();
+                return current;
+            }
+
+            misses.incrementAndGet();
+            long startGeneration;
+            synchronized (this) {
+                startGeneration = generation;
+            }
+            T loaded = loader.get();
+            synchronized (this) {
+                if (loaded != null && generation == startGeneration) {
+                    value = loaded;
+                    loadedAt = System.currentTimeMillis();
+                }
+            }
+            return loaded;
+        }
+
+        synchronized void invalidate() {
+            generation++;
+            value = null;
+        }
+    }
+}
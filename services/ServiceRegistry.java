@@ -0,0 +1,83 @@
+package services;
+
+import utils.Logger;
+
+/**
+ * Application-scoped home for the service objects and their background jobs.
+ *
+ * One instance is created at start-up and handed to {@link GUI.MainFrame},
+ * which passes it to every panel, so caches, counters and connections stay
+ * warm across logins instead of being rebuilt by each dashboard.
+ */
+public class ServiceRegistry {
+
+    private final UserService userService = new UserService();
+    private final UserServicesDB userAccounts = new UserServicesDB();
+    private final AppointmentServiceDB appointmentService = new AppointmentServiceDB();
+    private final DoctorServiceDB doctorService = new DoctorServiceDB();
+    private final ServicesServiceDB servicesService = new ServicesServiceDB();
+    private final NotificationService notificationService = new NotificationService();
+    private final ReferenceDataCache referenceData = ReferenceDataCache.shared();
+    private final PatientDirectory patientDirectory = new PatientDirectory();
+
+    private final AppointmentArchiver archiver = new AppointmentArchiver();
+    private final ChangeLogPoller changeLogPoller = new ChangeLogPoller();
+    private boolean started;
+
+    // ================= Lifecycle =================
+
+    /**
+     * Start the background jobs: archiving, change-log polling and slot-hold expiry
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        archiver.start();
+        changeLogPoller.start();
+        SlotHoldManager.shared().start();
+        started = true;
+    }
+
+    /**
+     * Load the doctor roster, service catalog and patient directory so the first
+     * dashboard opens from cache
+     */
+    public void warmUp() {
+        long startedAt = System.currentTimeMillis();
+        doctorService.getAllDoctors(true);
+        doctorService.getDoctorNames();
+        referenceData.getServices(true, () -> servicesService.getAllServices(true));
+        referenceData.getServiceNames(() -> servicesService.getAllServices(false));
+        patientDirectory.load();
+        Logger.log("Service caches warmed in " + (System.currentTimeMillis() - startedAt) + " ms");
+    }
+
+    /**
+     * Stop the background jobs and hand back shared resources; safe to call twice
+     */
+    public synchronized void shutdown() {
+        if (!started) {
+            return;
+        }
+        archiver.shutdown();
+        changeLogPoller.shutdown();
+        SlotHoldManager.shared().shutdown();
+        AppointmentServiceDB.shutdownSharedLimiter();
+        CapacityCalendar.shared().flush();
+        patientDirectory.saveSnapshot();
+        started = false;
+    }
+
+    // ================= Services =================
+
+    public UserService getUserService() { return userService; }
+    public UserServicesDB getUserAccounts() { return userAccounts; }
+    public AppointmentServiceDB getAppointmentService() { return appointmentService; }
+    public DoctorServiceDB getDoctorService() { return doctorService; }
+    public ServicesServiceDB getServicesService() { return servicesService; }
+    public NotificationService getNotificationService() { return notificationService; }
+    public ReferenceDataCache getReferenceData() { return referenceData; }
+    public PatientDirectory getPatientDirectory() { return patientDirectory; }
+    public ChangeLogPoller getChangeLogPoller() { return changeLogPoller; }
+}
@@ -0,0 +1,219 @@
+package services;
+
+import UI.IAppointmentLimiter;
+import utils.Config;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived holds on a doctor's time slot while a patient fills in the
+ * booking form.
+ *
+ * A hold takes one unit of half-day capacity from the limiter and hides the
+ * slot from other patients. It either turns into a booking through
+ * {@link #claim}, which keeps the capacity for the new appointment, or lapses
+ * and gives the capacity back.
+ *
+ * Expiry runs on a hashed timer wheel: one bucket per tick, each hold filed
+ * under the tick it expires on, so a tick only touches the holds due in that
+ * bucket rather than scanning them all.
+ */
+public class SlotHoldManager {
+
+    private static final int WHEEL_SIZE = 64;
+    private static final long TICK_MILLIS = 1000;
+
+    private static SlotHoldManager shared;
+
+    public static synchronized SlotHoldManager shared() {
+        if (shared == null) {
+            shared = new SlotHoldManager(AppointmentServiceDB.sharedLimiter(),
+                    TimeUnit.SECONDS.toMillis(Config.SLOT_HOLD_SECONDS));
+            shared.start();
+        }
+        return shared;
+    }
+
+    private final IAppointmentLimiter limiter;
+    private final long ttlTicks;
+
+    private final Map<String, Hold> byToken = new HashMap<>();
+    private final Map<String, Hold> bySlot = new HashMap<>();
+    private final List<List<Hold>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private long currentTick;
+
+    private ScheduledExecutorService timer;
+
+    public SlotHoldManager(IAppointmentLimiter limiter, long ttlMillis) {
+        this.limiter = limiter;
+        this.ttlTicks = Math.max(1, ttlMillis / TICK_MILLIS);
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * A held slot. The token is what the booking form keeps and hands back on "Book".
+     */
+    public static final class Hold {
+        private final String token;
+        private final String ownerId;
+        private final String doctorId;
+        private final LocalDateTime dateTime;
+        private final long expiresAtMillis;
+        private final long deadlineTick;
+
+        private Hold(String ownerId, String doctorId, LocalDateTime dateTime, long expiresAtMillis, long deadlineTick) {
+            this.token = UUID.randomUUID().toString();
+            this.ownerId = ownerId;
+            this.doctorId = doctorId;
+            this.dateTime = dateTime;
+            this.expiresAtMillis = expiresAtMillis;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public String getToken() { return token; }
+        public String getOwnerId() { return ownerId; }
+        public String getDoctorId() { return doctorId; }
+        public LocalDateTime getDateTime() { return dateTime; }
+        public long getExpiresAtMillis() { return expiresAtMillis; }
+    }
+
+    // ================= Holds =================
+
+    /**
+     * Hold a slot for an owner. Returns the existing hold if the owner already has
+     * this slot, or null if someone else holds it or the half-day is full.
+     */
+    public synchronized Hold place(String ownerId, String doctorId, LocalDateTime dateTime) {
+        String key = slotKey(doctorId, dateTime);
+        Hold existing = bySlot.get(key);
+        if (existing != null) {
+            return existing.ownerId.equals(ownerId) ? existing : null;
+        }
+        if (!limiter.tryReserve(dateTime.toLocalDate(), halfDay(dateTime))) {
+            return null;
+        }
+
+        long deadline = currentTick + ttlTicks;
+        Hold hold = new Hold(ownerId, doctorId, dateTime,
+                System.currentTimeMillis() + ttlTicks * TICK_MILLIS, deadline);
+        byToken.put(hold.token, hold);
+        bySlot.put(key, hold);
+        wheel.get((int) (deadline % WHEEL_SIZE)).add(hold);
+        return hold;
+    }
+
+    /**
+     * Turn a live hold into a booking. The hold's capacity is handed to the caller,
+     * who must release it through the limiter if the booking then fails.
+     */
+    public synchronized Hold claim(String token, String ownerId) {
+        Hold hold = byToken.get(token);
+        if (hold == null || !hold.ownerId.equals(ownerId)) {
+            return null;
+        }
+        forget(hold);
+        return hold;
+    }
+
+    /**
+     * Drop a hold early, e.g. when the patient picks a different time
+     */
+    public synchronized boolean release(String token) {
+        Hold hold = byToken.get(token);
+        if (hold == null) {
+            return false;
+        }
+        forget(hold);
+        limiter.release(hold.dateTime.toLocalDate(), halfDay(hold.dateTime));
+        return true;
+    }
+
+    public synchronized boolean isHeldByOther(String doctorId, LocalDateTime dateTime, String viewerId) {
+        Hold hold = bySlot.get(slotKey(doctorId, dateTime));
+        return hold != null && !hold.ownerId.equals(viewerId);
+    }
+
+    /**
+     * Slots of a doctor-day held by anyone other than the viewer, in
+     * {@link AvailabilityCache} slot order
+     */
+    public synchronized int heldMask(String doctorId, LocalDate date, String viewerId) {
+        int mask = 0;
+        for (Hold hold : bySlot.values()) {
+            if (hold.doctorId.equals(doctorId) && hold.dateTime.toLocalDate().equals(date)
+                    && !hold.ownerId.equals(viewerId)) {
+                int slot = AvailabilityCache.slotIndex(hold.dateTime.toLocalTime());
+                if (slot >= 0) {
+                    mask |= 1 << slot;
+                }
+            }
+        }
+        return mask;
+    }
+
+    public synchronized int size() {
+        return byToken.size();
+    }
+
+    private void forget(Hold hold) {
+        byToken.remove(hold.token);
+        bySlot.remove(slotKey(hold.doctorId, hold.dateTime));
+        // The wheel entry is skipped when its tick comes round
+    }
+
+    // ================= Timer Wheel =================
+
+    synchronized void tick() {
+        currentTick++;
+        Iterator<Hold> it = wheel.get((int) (currentTick % WHEEL_SIZE)).iterator();
+        while (it.hasNext()) {
+            Hold hold = it.next();
+            if (byToken.get(hold.token) != hold) {
+                it.remove();
+            } else if (hold.deadlineTick <= currentTick) {
+                it.remove();
+                forget(hold);
+                limiter.release(hold.dateTime.toLocalDate(), halfDay(hold.dateTime));
+            }
+        }
+    }
+
+    public synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "slot-hold-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    static String halfDay(LocalDateTime dateTime) {
+        return dateTime.getHour() < 12 ? "AM" : "PM";
+    }
+
+    private static String slotKey(String doctorId, LocalDateTime dateTime) {
+        return doctorId + '|' + dateTime;
+    }
+}
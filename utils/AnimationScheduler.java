@@ -0,0 +1,225 @@
+package utils;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One frame clock for every running animation.
+ *
+ * A single Swing timer ticks about 60 times a second while anything is
+ * animating and stops when the last animation ends. Each tick advances every
+ * animation, then marks the areas they touched dirty with the RepaintManager,
+ * merged per parent, so simultaneous transitions share one timer and one paint
+ * pass per frame. Call from the Event Dispatch Thread.
+ */
+public final class AnimationScheduler {
+
+    private static final int FRAME_MILLIS = 16;
+
+    public enum Easing {
+        LINEAR,
+        EASE_IN_CUBIC,
+        EASE_OUT_CUBIC,
+        EASE_IN_OUT_CUBIC;
+
+        /**
+         * Map linear progress in [0, 1] onto the curve
+         */
+        public float apply(float t) {
+            switch (this) {
+                case EASE_IN_CUBIC:
+                    return t * t * t;
+                case EASE_OUT_CUBIC:
+                    float u = 1 - t;
+                    return 1 - u * u * u;
+                case EASE_IN_OUT_CUBIC:
+                    if (t < 0.5f) {
+                        return 4 * t * t * t;
+                    }
+                    float v = -2 * t + 2;
+                    return 1 - v * v * v / 2;
+                default:
+                    return t;
+            }
+        }
+    }
+
+    /**
+     * Moves the target to the state for some eased progress. Should not repaint;
+     * the scheduler does.
+     */
+    public interface Frame {
+        void apply(float progress);
+    }
+
+    public static final class Animation {
+        private final JComponent target;
+        private final String property;
+        private final long durationNanos;
+        private final Easing easing;
+        private final Frame frame;
+        private final Runnable onDone;
+        private final long startNanos = System.nanoTime();
+        private boolean running = true;
+
+        private Animation(JComponent target, String property, int durationMillis,
+                          Easing easing, Frame frame, Runnable onDone) {
+            this.target = target;
+            this.property = property;
+            this.durationNanos = Math.max(0, durationMillis) * 1_000_000L;
+            this.easing = easing;
+            this.frame = frame;
+            this.onDone = onDone;
+        }
+
+        public boolean isRunning() {
+            return running;
+        }
+
+        /**
+         * Stop where it is, without reaching the end state
+         */
+        public void cancel() {
+            running = false;
+        }
+
+        private boolean step(long now, Map<JComponent, Rectangle> dirty) {
+            float t = durationNanos == 0 ? 1f : Math.min(1f, (float) (now - startNanos) / durationNanos);
+            Rectangle before = target.getBounds();
+            frame.apply(easing.apply(t));
+            markDirty(target, before, dirty);
+            return t >= 1f;
+        }
+
+        private void finish(Map<JComponent, Rectangle> dirty) {
+            running = false;
+            Rectangle before = target.getBounds();
+            frame.apply(1f);
+            markDirty(target, before, dirty);
+            if (onDone != null) {
+                onDone.run();
+            }
+        }
+    }
+
+    private static final List<Animation> ACTIVE = new ArrayList<>();
+    private static final Timer TIMER = new Timer(FRAME_MILLIS, e -> tick());
+
+    static {
+        TIMER.setCoalesce(true);
+    }
+
+    private AnimationScheduler() {
+    }
+
+    /**
+     * Start an animation on a component. A running animation of the same
+     * property on the same component is jumped to its end first. Callers that
+     * read start values should {@link #settle} before reading them.
+     *
+     * @param property names what is animated, e.g. "background"; null never replaces
+     * @param onDone   run once after the final frame, may be null
+     */
+    public static Animation animate(JComponent target, String property, int durationMillis,
+                                    Easing easing, Frame frame, Runnable onDone) {
+        Animation animation = new Animation(target, property, durationMillis, easing, frame, onDone);
+        if (SwingUtilities.isEventDispatchThread()) {
+            start(animation);
+        } else {
+            SwingUtilities.invokeLater(() -> start(animation));
+        }
+        return animation;
+    }
+
+    /**
+     * Jump any running animation of a property on a component to its end state
+     * now, so its settled values can be read before starting the next one
+     */
+    public static void settle(JComponent target, String property) {
+        Map<JComponent, Rectangle> dirty = new LinkedHashMap<>();
+        for (int i = ACTIVE.size() - 1; i >= 0; i--) {
+            Animation other = ACTIVE.get(i);
+            if (other.target == target && property.equals(other.property)) {
+                ACTIVE.remove(i);
+                if (other.running) {
+                    other.finish(dirty);
+                }
+            }
+        }
+        flush(dirty);
+    }
+
+    public static boolean isIdle() {
+        return ACTIVE.isEmpty();
+    }
+
+    private static void start(Animation animation) {
+        if (!animation.running) {
+            return;
+        }
+        if (animation.property != null) {
+            settle(animation.target, animation.property);
+        }
+        ACTIVE.add(animation);
+        if (!TIMER.isRunning()) {
+            TIMER.start();
+        }
+    }
+
+    private static void tick() {
+        long now = System.nanoTime();
+        Map<JComponent, Rectangle> dirty = new LinkedHashMap<>();
+        // Callbacks may start or cancel animations; work from a copy
+        Animation[] frame = ACTIVE.toArray(new Animation[0]);
+        for (Animation animation : frame) {
+            if (!animation.running) {
+                ACTIVE.remove(animation);
+            } else if (animation.step(now, dirty)) {
+                ACTIVE.remove(animation);
+                animation.running = false;
+                if (animation.onDone != null) {
+                    animation.onDone.run();
+                }
+            }
+        }
+        flush(dirty);
+        if (ACTIVE.isEmpty()) {
+            TIMER.stop();
+        }
+    }
+
+    // ================= Dirty regions =================
+
+    /**
+     * Record where a component was and is, in its parent's coordinates, so a
+     * move or a translucent background repaints what is behind it too
+     */
+    private static void markDirty(JComponent target, Rectangle before, Map<JComponent, Rectangle> dirty) {
+        Container parent = target.getParent();
+        JComponent owner;
+        Rectangle area;
+        if (parent instanceof JComponent) {
+            owner = (JComponent) parent;
+            area = before.union(target.getBounds());
+        } else {
+            owner = target;
+            area = new Rectangle(0, 0, target.getWidth(), target.getHeight());
+        }
+        if (area.isEmpty() || !owner.isShowing()) {
+            return;
+        }
+        dirty.merge(owner, area, Rectangle::union);
+    }
+
+    private static void flush(Map<JComponent, Rectangle> dirty) {
+        for (Map.Entry<JComponent, Rectangle> entry : dirty.entrySet()) {
+            Rectangle r = entry.getValue();
+            RepaintManager.currentManager(entry.getKey())
+                    .addDirtyRegion(entry.getKey(), r.x, r.y, r.width, r.height);
+        }
+    }
+}
@@ -2,113 +2,82 @@ package utils;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 
+/**
+ * Common component animations, all driven by the shared {@link AnimationScheduler}
+ */
 public class AnimationsUtil {
     
+    private static final int PULSE_CYCLE_MILLIS = 1000;
+    
     /**
      * Create a fade-in animation for a component
      */
     public static void fadeIn(JComponent component, int durationMillis) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> fadeIn(component, durationMillis));
+            return;
+        }
         component.setVisible(true);
         
-        Timer timer = new Timer(16, null); // ~60 FPS
-        final long startTime = System.currentTimeMillis();
-        
-        timer.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                long elapsed = System.currentTimeMillis() - startTime;
-                float progress = Math.min(1.0f, (float) elapsed / durationMillis);
-                
-                // Calculate alpha value
-                int alpha = (int) (progress * 255);
-                Color bg = component.getBackground();
-                Color fg = component.getForeground();
-                
-                // Create transparent versions
-                Color transparentBg = new Color(bg.getRed(), bg.getGreen(), bg.getBlue(), alpha);
-                Color transparentFg = new Color(fg.getRed(), fg.getGreen(), fg.getBlue(), alpha);
-                
-                component.setBackground(transparentBg);
-                component.setForeground(transparentFg);
-                component.repaint();
-                
-                if (progress >= 1.0f) {
-                    ((Timer) e.getSource()).stop();
-                }
-            }
-        });
+        // Fade towards the colours of a settled component, not a half-faded frame
+        AnimationScheduler.settle(component, "fade");
+        final Color bg = component.getBackground();
+        final Color fg = component.getForeground();
         
-        timer.start();
+        AnimationScheduler.animate(component, "fade", durationMillis, AnimationScheduler.Easing.LINEAR,
+                progress -> {
+                    component.setBackground(withAlpha(bg, progress));
+                    component.setForeground(withAlpha(fg, progress));
+                }, null);
     }
     
     /**
      * Create a slide animation for panels
      */
     public static void slideIn(JComponent component, int startX, int endX, int durationMillis) {
-        Timer timer = new Timer(16, null);
-        final long startTime = System.currentTimeMillis();
-        
-        timer.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                long elapsed = System.currentTimeMillis() - startTime;
-                float progress = Math.min(1.0f, (float) elapsed / durationMillis);
-                
-                // Easing function for smooth animation
-                float easedProgress = easeOutCubic(progress);
-                int currentX = (int) (startX + (endX - startX) * easedProgress);
-                
-                component.setLocation(currentX, component.getY());
-                component.repaint();
-                
-                if (progress >= 1.0f) {
-                    ((Timer) e.getSource()).stop();
-                }
-            }
-        });
-        
-        timer.start();
-    }
-    
-    /**
-     * Easing function for smooth animations
-     */
-    private static float easeOutCubic(float t) {
-        return (float) (1 - Math.pow(1 - t, 3));
+        AnimationScheduler.animate(component, "slide", durationMillis, AnimationScheduler.Easing.EASE_OUT_CUBIC,
+                progress -> component.setLocation(Math.round(startX + (endX - startX) * progress), component.getY()),
+                null);
     }
     
     /**
      * Create a pulsing animation for important notifications
      */
     public static void pulse(JComponent component, Color pulseColor, int cycles) {
-        Timer timer = new Timer(500, null);
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> pulse(component, pulseColor, cycles));
+            return;
+        }
+        // Finish a running pulse first so its blended colour is not taken as the original
+        AnimationScheduler.settle(component, "pulse");
         final Color originalColor = component.getBackground();
-        final int[] count = {0};
-        
-        timer.addActionListener(new ActionListener() {
-            boolean pulseState = false;
-            
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                if (pulseState) {
-                    component.setBackground(pulseColor);
-                } else {
-                    component.setBackground(originalColor);
-                }
-                pulseState = !pulseState;
-                component.repaint();
-                
-                count[0]++;
-                if (count[0] >= cycles * 2) {
-                    ((Timer) e.getSource()).stop();
-                    component.setBackground(originalColor);
-                }
-            }
-        });
         
-        timer.start();
+        // Linear overall; each cycle eases to the pulse colour and back
+        AnimationScheduler.animate(component, "pulse", cycles * PULSE_CYCLE_MILLIS, AnimationScheduler.Easing.LINEAR,
+                progress -> {
+                    float cycle = progress * cycles;
+                    float phase = cycle - (int) cycle;
+                    if (progress >= 1.0f) {
+                        component.setBackground(originalColor);
+                        return;
+                    }
+                    float amount = AnimationScheduler.Easing.EASE_IN_OUT_CUBIC.apply(
+                            phase < 0.5f ? phase * 2 : 2 - phase * 2);
+                    component.setBackground(blend(originalColor, pulseColor, amount));
+                }, null);
+    }
+    
+    private static Color withAlpha(Color color, float progress) {
+        return new Color(color.getRed(), color.getGreen(), color.getBlue(),
+                Math.round(color.getAlpha() * progress));
+    }
+    
+    private static Color blend(Color from, Color to, float amount) {
+        return new Color(
+                Math.round(from.getRed() + (to.getRed() - from.getRed()) * amount),
+                Math.round(from.getGreen() + (to.getGreen() - from.getGreen()) * amount),
+                Math.round(from.getBlue() + (to.getBlue() - from.getBlue()) * amount),
+                Math.round(from.getAlpha() + (to.getAlpha() - from.getAlpha()) * amount));
     }
-}
\ No newline at end of file
+}
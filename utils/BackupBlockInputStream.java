@@ -0,0 +1,270 @@
+package utils;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads streams written by {@link BackupBlockOutputStream}. Blocks are checked,
+ * decrypted and inflated on a worker pool ahead of the consumer and handed back
+ * in order.
+ */
+public class BackupBlockInputStream extends InputStream {
+
+    private final DataInputStream in;
+    private final SecretKey key;
+    private final byte[] noncePrefix = new byte[4];
+    private final int blockSize;
+    private final ExecutorService pool;
+    private final int maxInFlight;
+    private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+
+    private byte[] current = new byte[0];
+    private int position;
+    private long nextIndex;
+    private long totalBytes;
+    private boolean trailerSeen;
+
+    public BackupBlockInputStream(InputStream source, SecretKey key) throws IOException {
+        this(source, key, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BackupBlockInputStream(InputStream source, SecretKey key, int threads) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(source, 64 * 1024));
+        if (in.readInt() != BackupBlockOutputStream.MAGIC) {
+            throw new IOException("Not a DermAppoint block stream");
+        }
+        int version = in.readInt();
+        if (version != BackupBlockOutputStream.VERSION) {
+            throw new IOException("Unsupported block stream version: " + version);
+        }
+        boolean encrypted = (in.readByte() & BackupBlockOutputStream.FLAG_ENCRYPTED) != 0;
+        in.readFully(noncePrefix);
+        this.blockSize = in.readInt();
+
+        if (encrypted && key == null) {
+            throw new IOException("Backup is encrypted but no key is available");
+        }
+        this.key = encrypted ? key : null;
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "backup-inflate");
+            t.setDaemon(true);
+            return t;
+        });
+        this.maxInFlight = Math.max(2, threads * 2);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        return current[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    private boolean ensureData() throws IOException {
+        while (position >= current.length) {
+            fill();
+            if (inFlight.isEmpty()) {
+                return false;
+            }
+            current = await(inFlight.removeFirst());
+            position = 0;
+        }
+        return true;
+    }
+
+    private void fill() throws IOException {
+        while (!trailerSeen && inFlight.size() < maxInFlight) {
+            Frame frame = readFrame(in);
+            if (frame == null) {
+                trailerSeen = true;
+                readTrailer(in, nextIndex, totalBytes);
+                return;
+            }
+            if (frame.rawLength > blockSize) {
+                throw new IOException("Corrupt backup block header");
+            }
+            final long index = nextIndex++;
+            totalBytes += frame.rawLength;
+            inFlight.addLast(pool.submit(() -> openBlock(frame, index)));
+        }
+    }
+
+    private byte[] openBlock(Frame frame, long index) throws IOException, GeneralSecurityException, DataFormatException {
+        CRC32C crc = new CRC32C();
+        crc.update(frame.stored);
+        if ((int) crc.getValue() != frame.crc) {
+            throw new IOException("Checksum mismatch in backup block " + index);
+        }
+
+        byte[] compressed = frame.stored;
+        if (key != null) {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key,
+                    new GCMParameterSpec(BackupBlockOutputStream.GCM_TAG_BITS, BackupBlockOutputStream.nonce(noncePrefix, index)));
+            cipher.updateAAD(ByteBuffer.allocate(Long.BYTES).putLong(index).array());
+            compressed = cipher.doFinal(compressed);
+        }
+
+        byte[] raw = new byte[frame.rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int n = 0;
+            while (n < raw.length && !inflater.finished()) {
+                n += inflater.inflate(raw, n, raw.length - n);
+                if (inflater.needsInput() && n < raw.length) {
+                    break;
+                }
+            }
+            if (n != raw.length) {
+                throw new IOException("Backup block " + index + " is shorter than recorded");
+            }
+        } finally {
+            inflater.end();
+        }
+        return raw;
+    }
+
+    private byte[] await(Future<byte[]> pending) throws IOException {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Backup read interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to read backup block", cause);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Future<byte[]> pending : inFlight) {
+            pending.cancel(true);
+        }
+        pool.shutdownNow();
+        in.close();
+    }
+
+    // ================= Frame Parsing =================
+
+    private static final class Frame {
+        final int rawLength;
+        final int crc;
+        final byte[] stored;
+
+        Frame(int rawLength, int crc, byte[] stored) {
+            this.rawLength = rawLength;
+            this.crc = crc;
+            this.stored = stored;
+        }
+    }
+
+    /**
+     * Returns the next block frame, or null when the trailer marker is reached.
+     */
+    private static Frame readFrame(DataInputStream in) throws IOException {
+        try {
+            int rawLength = in.readInt();
+            int storedLength = in.readInt();
+            if (rawLength == -1 && storedLength == 0) {
+                return null;
+            }
+            if (rawLength < 0 || storedLength < 0) {
+                throw new IOException("Corrupt backup block header");
+            }
+            int crc = in.readInt();
+            byte[] stored = new byte[storedLength];
+            in.readFully(stored);
+            return new Frame(rawLength, crc, stored);
+        } catch (EOFException e) {
+            throw new IOException("Backup file is truncated", e);
+        }
+    }
+
+    private static void readTrailer(DataInputStream in, long blocks, long bytes) throws IOException {
+        try {
+            long expectedBlocks = in.readLong();
+            long expectedBytes = in.readLong();
+            if (expectedBlocks != blocks || expectedBytes != bytes) {
+                throw new IOException("Backup trailer does not match its blocks");
+            }
+        } catch (EOFException e) {
+            throw new IOException("Backup file is truncated", e);
+        }
+    }
+
+    /**
+     * Check every block checksum and the trailer without decrypting or inflating.
+     * Throws IOException describing the first problem found.
+     */
+    public static long verify(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != BackupBlockOutputStream.MAGIC) {
+                throw new IOException("Not a DermAppoint block stream: " + file);
+            }
+            in.readInt();
+            in.readByte();
+            in.readFully(new byte[4]);
+            in.readInt();
+
+            long blocks = 0;
+            long bytes = 0;
+            Frame frame;
+            while ((frame = readFrame(in)) != null) {
+                CRC32C crc = new CRC32C();
+                crc.update(frame.stored);
+                if ((int) crc.getValue() != frame.crc) {
+                    throw new IOException("Checksum mismatch in block " + blocks + " of " + file);
+                }
+                blocks++;
+                bytes += frame.rawLength;
+            }
+            readTrailer(in, blocks, bytes);
+            if (in.read() != -1) {
+                throw new IOException("Unexpected data after trailer in " + file);
+            }
+            return blocks;
+        } catch (EOFException e) {
+            throw new IOException("Backup file is truncated: " + file, e);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package utils;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+
+/**
+ * Splits a backup into fixed-size blocks that are compressed and encrypted in
+ * parallel, pigz-style, then written in order.
+ *
+ * Stream layout:
+ *   header  MAGIC, VERSION, flags, 4-byte nonce prefix, block size
+ *   block   raw length, stored length, CRC32C of stored bytes, stored bytes
+ *   trailer -1, 0, block count, total raw bytes
+ *
+ * Stored bytes are the deflated block, sealed with AES-GCM when a key is given.
+ * The GCM nonce is the stream's random prefix plus the block index, and the index
+ * is also bound as associated data so blocks cannot be reordered. The CRC covers
+ * the stored bytes, so {@link BackupBlockInputStream#verify} can detect corruption
+ * without the key and without restoring anything.
+ */
+public class BackupBlockOutputStream extends OutputStream {
+
+    public static final int MAGIC = 0x4441425A; // "DABZ"
+    public static final int VERSION = 1;
+    public static final int FLAG_ENCRYPTED = 1;
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    public static final int GCM_TAG_BITS = 128;
+
+    private final DataOutputStream out;
+    private final SecretKey key;
+    private final byte[] noncePrefix = new byte[4];
+    private final int blockSize;
+    private final ExecutorService pool;
+    private final int maxInFlight;
+    private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+
+    private byte[] buffer;
+    private int position;
+    private long blockCount;
+    private long totalBytes;
+    private boolean closed;
+
+    public BackupBlockOutputStream(OutputStream sink, SecretKey key) throws IOException {
+        this(sink, key, DEFAULT_BLOCK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BackupBlockOutputStream(OutputStream sink, SecretKey key, int blockSize, int threads) throws IOException {
+        this.out = new DataOutputStream(sink);
+        this.key = key;
+        this.blockSize = blockSize;
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "backup-compress");
+            t.setDaemon(true);
+            return t;
+        });
+        // Bound memory: at most two blocks per worker are buffered at any time
+        this.maxInFlight = Math.max(2, threads * 2);
+        this.buffer = new byte[blockSize];
+
+        new SecureRandom().nextBytes(noncePrefix);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeByte(key != null ? FLAG_ENCRYPTED : 0);
+        out.write(noncePrefix);
+        out.writeInt(blockSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        buffer[position++] = (byte) b;
+        if (position == blockSize) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, blockSize - position);
+            System.arraycopy(b, off, buffer, position, n);
+            position += n;
+            off += n;
+            len -= n;
+            if (position == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        if (position == 0) {
+            return;
+        }
+        final byte[] raw = buffer;
+        final int length = position;
+        final long index = blockCount++;
+        totalBytes += length;
+
+        inFlight.addLast(pool.submit(() -> sealBlock(raw, length, index)));
+        buffer = new byte[blockSize];
+        position = 0;
+
+        while (inFlight.size() >= maxInFlight) {
+            writeFrame(inFlight.removeFirst());
+        }
+    }
+
+    private byte[] sealBlock(byte[] raw, int length, long index) throws GeneralSecurityException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+        try {
+            deflater.setInput(raw, 0, length);
+            deflater.finish();
+            byte[] chunk = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                compressed.write(chunk, 0, n);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        byte[] stored = compressed.toByteArray();
+        if (key != null) {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, nonce(noncePrefix, index)));
+            cipher.updateAAD(ByteBuffer.allocate(Long.BYTES).putLong(index).array());
+            stored = cipher.doFinal(stored);
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(stored);
+
+        ByteBuffer frame = ByteBuffer.allocate(12 + stored.length);
+        frame.putInt(length);
+        frame.putInt(stored.length);
+        frame.putInt((int) crc.getValue());
+        frame.put(stored);
+        return frame.array();
+    }
+
+    static byte[] nonce(byte[] prefix, long index) {
+        return ByteBuffer.allocate(12).put(prefix).putLong(index).array();
+    }
+
+    private void writeFrame(Future<byte[]> pending) throws IOException {
+        try {
+            out.write(pending.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Backup compression interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress backup block", e.getCause());
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Backup stream is closed");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submitBlock();
+            while (!inFlight.isEmpty()) {
+                writeFrame(inFlight.removeFirst());
+            }
+            out.writeInt(-1);
+            out.writeInt(0);
+            out.writeLong(blockCount);
+            out.writeLong(totalBytes);
+            out.flush();
+        } finally {
+            for (Future<byte[]> pending : inFlight) {
+                pending.cancel(true);
+            }
+            pool.shutdownNow();
+            out.close();
+        }
+    }
+}
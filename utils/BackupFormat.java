@@ -0,0 +1,137 @@
+package utils;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Record layout shared by the backup engine and the restore tool.
+ *
+ * A backup file starts with MAGIC and VERSION, followed by one section per table:
+ * TABLE, table name, column names, primary key columns, then ROW records holding
+ * one nullable string per column, then END_TABLE. The file ends with END.
+ */
+public final class BackupFormat {
+
+    public static final int MAGIC = 0x44414231; // "DAB1"
+    public static final int VERSION = 1;
+
+    public static final byte TABLE = 1;
+    public static final byte ROW = 2;
+    public static final byte END_TABLE = 3;
+    public static final byte END = 4;
+
+    public static final String FILE_EXTENSION = ".dab";
+
+    private BackupFormat() {
+    }
+
+    public static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    public static void readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a DermAppoint backup file");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported backup version: " + version);
+        }
+    }
+
+    public static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    public static String[] readStrings(DataInputStream in) throws IOException {
+        String[] values = new String[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString(in);
+        }
+        return values;
+    }
+
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        try {
+            in.readFully(bytes);
+        } catch (EOFException e) {
+            throw new IOException("Backup file is truncated", e);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Load the AES-256 backup key from {@link Config#BACKUP_KEY_FILE}.
+     * When createIfMissing is set, a new key is generated on first use.
+     * Keep a copy of the key away from the backups: without it they cannot be restored.
+     */
+    public static SecretKey loadKey(boolean createIfMissing) throws IOException {
+        Path keyFile = Paths.get(Config.BACKUP_KEY_FILE);
+        if (!Files.exists(keyFile)) {
+            if (!createIfMissing) {
+                throw new IOException("Backup key not found: " + keyFile);
+            }
+            byte[] key = new byte[32];
+            new SecureRandom().nextBytes(key);
+            Path dir = keyFile.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+
+            // Owner-only from the moment it exists, then moved into place whole
+            Path temp;
+            try {
+                temp = Files.createTempFile(dir, ".backup-key", ".tmp",
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            } catch (UnsupportedOperationException e) {
+                // Non-POSIX file system; rely on the directory's permissions
+                temp = Files.createTempFile(dir, ".backup-key", ".tmp");
+            }
+            try {
+                Files.write(temp, Base64.getEncoder().encode(key));
+                Files.move(temp, keyFile, StandardCopyOption.ATOMIC_MOVE);
+                Logger.log("Generated new backup encryption key at " + keyFile + ". Store a copy off this machine.");
+            } catch (FileAlreadyExistsException e) {
+                // Another process created one first; use theirs
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        byte[] key = Base64.getDecoder().decode(new String(Files.readAllBytes(keyFile), StandardCharsets.US_ASCII).trim());
+        if (key.length != 32) {
+            throw new IOException("Backup key must be 256 bits: " + keyFile);
+        }
+        return new SecretKeySpec(key, "AES");
+    }
+}
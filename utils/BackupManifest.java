@@ -0,0 +1,125 @@
+package utils;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Describes one backup chain: a full base snapshot followed by incremental
+ * deltas, each covering the row changes in [since, until).
+ * Stored as manifest.properties inside the chain directory.
+ */
+public class BackupManifest {
+
+    public static final String FILE_NAME = "manifest.properties";
+
+    public enum EntryType { FULL, INCREMENTAL }
+
+    public static class Entry {
+        private final EntryType type;
+        private final String file;
+        private final String parent;
+        private final Timestamp since;
+        private final Timestamp until;
+        private final long rows;
+
+        public Entry(EntryType type, String file, String parent, Timestamp since, Timestamp until, long rows) {
+            this.type = type;
+            this.file = file;
+            this.parent = parent;
+            this.since = since;
+            this.until = until;
+            this.rows = rows;
+        }
+
+        public EntryType getType() { return type; }
+        public String getFile() { return file; }
+        public String getParent() { return parent; }
+        public Timestamp getSince() { return since; }
+        public Timestamp getUntil() { return until; }
+        public long getRows() { return rows; }
+    }
+
+    private final Path chainDir;
+    private final List<Entry> entries = new ArrayList<>();
+
+    public BackupManifest(Path chainDir) {
+        this.chainDir = chainDir;
+    }
+
+    public Path getChainDir() { return chainDir; }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    public Entry getLastEntry() {
+        return entries.isEmpty() ? null : entries.get(entries.size() - 1);
+    }
+
+    public Entry getBase() {
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    public void addEntry(Entry entry) {
+        if (entries.isEmpty() && entry.getType() != EntryType.FULL) {
+            throw new IllegalStateException("A backup chain must start with a full snapshot");
+        }
+        entries.add(entry);
+    }
+
+    public static BackupManifest load(Path chainDir) throws IOException {
+        Properties props = new Properties();
+        try (FileInputStream fis = new FileInputStream(chainDir.resolve(FILE_NAME).toFile())) {
+            props.load(fis);
+        }
+
+        BackupManifest manifest = new BackupManifest(chainDir);
+        int count = Integer.parseInt(props.getProperty("entries", "0"));
+        for (int i = 0; i < count; i++) {
+            String prefix = "entry." + i + ".";
+            String since = props.getProperty(prefix + "since", "");
+            manifest.entries.add(new Entry(
+                    EntryType.valueOf(props.getProperty(prefix + "type")),
+                    props.getProperty(prefix + "file"),
+                    props.getProperty(prefix + "parent", ""),
+                    since.isEmpty() ? null : Timestamp.valueOf(since),
+                    Timestamp.valueOf(props.getProperty(prefix + "until")),
+                    Long.parseLong(props.getProperty(prefix + "rows", "0"))));
+        }
+        return manifest;
+    }
+
+    /**
+     * Writes the manifest through a temporary file so a crash never leaves a half-written chain.
+     */
+    public void save() throws IOException {
+        Properties props = new Properties();
+        props.setProperty("chain", chainDir.getFileName().toString());
+        props.setProperty("entries", String.valueOf(entries.size()));
+        for (int i = 0; i < entries.size(); i++) {
+            Entry e = entries.get(i);
+            String prefix = "entry." + i + ".";
+            props.setProperty(prefix + "type", e.getType().name());
+            props.setProperty(prefix + "file", e.getFile());
+            props.setProperty(prefix + "parent", e.getParent() == null ? "" : e.getParent());
+            props.setProperty(prefix + "since", e.getSince() == null ? "" : e.getSince().toString());
+            props.setProperty(prefix + "until", e.getUntil().toString());
+            props.setProperty(prefix + "rows", String.valueOf(e.getRows()));
+        }
+
+        Path tmp = chainDir.resolve(FILE_NAME + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile())) {
+            props.store(fos, "DermAppoint Backup Chain");
+        }
+        Files.move(tmp, chainDir.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
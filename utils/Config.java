@@ -22,6 +22,16 @@ public class Config {
     public static String CLINIC_NAME;
     public static String CLINIC_ADDRESS;
     public static String CLINIC_PHONE;
+    public static int ARCHIVE_AFTER_DAYS;
+    public static int ARCHIVE_BATCH_SIZE;
+    public static int REFERENCE_CACHE_TTL_MINUTES;
+    public static int SLOT_HOLD_SECONDS;
+    public static boolean CAPACITY_LEASING;
+    public static int LEASE_BLOCK_SIZE;
+    public static int LEASE_TTL_SECONDS;
+    public static int CHANGE_LOG_POLL_MILLIS;
+    public static int CHANGE_LOG_IDLE_POLL_MILLIS;
+    public static int CHANGE_LOG_RETENTION_MINUTES;
 
     // ================= Email Configuration =================
     public static String SMTP_HOST;
@@ -33,6 +43,14 @@ public class Config {
     public static String LOG_DIRECTORY;
     public static String EXPORT_DIRECTORY;
     public static String BACKUP_DIRECTORY;
+    public static String CAPACITY_CALENDAR_FILE;
+    public static String PATIENT_INDEX_FILE;
+
+    // ================= Backup Configuration =================
+    public static int BACKUP_FULL_INTERVAL_DAYS;
+    public static int BACKUP_RETENTION_DAYS;
+    public static boolean BACKUP_ENCRYPT;
+    public static String BACKUP_KEY_FILE;
 
     // ================= Static Block =================
     static {
@@ -64,6 +82,16 @@ public class Config {
             CLINIC_NAME = props.getProperty("clinic.name", "DermaClinic");
             CLINIC_ADDRESS = props.getProperty("clinic.address", "123 Skin Care St, Dermatology City");
             CLINIC_PHONE = props.getProperty("clinic.phone", "09170000000");
+            ARCHIVE_AFTER_DAYS = Integer.parseInt(props.getProperty("app.archive_after_days", "90"));
+            ARCHIVE_BATCH_SIZE = Integer.parseInt(props.getProperty("app.archive_batch_size", "500"));
+            REFERENCE_CACHE_TTL_MINUTES = Integer.parseInt(props.getProperty("app.reference_cache_ttl_minutes", "10"));
+            SLOT_HOLD_SECONDS = Integer.parseInt(props.getProperty("app.slot_hold_seconds", "300"));
+            CAPACITY_LEASING = Boolean.parseBoolean(props.getProperty("app.capacity_leasing", "false"));
+            LEASE_BLOCK_SIZE = Integer.parseInt(props.getProperty("app.lease_block_size", "4"));
+            LEASE_TTL_SECONDS = Integer.parseInt(props.getProperty("app.lease_ttl_seconds", "30"));
+            CHANGE_LOG_POLL_MILLIS = Integer.parseInt(props.getProperty("app.change_log_poll_millis", "1000"));
+            CHANGE_LOG_IDLE_POLL_MILLIS = Integer.parseInt(props.getProperty("app.change_log_idle_poll_millis", "8000"));
+            CHANGE_LOG_RETENTION_MINUTES = Integer.parseInt(props.getProperty("app.change_log_retention_minutes", "60"));
 
             // Email
             SMTP_HOST = props.getProperty("email.smtp.host", "smtp.gmail.com");
@@ -75,6 +103,14 @@ public class Config {
             LOG_DIRECTORY = props.getProperty("paths.logs", "logs");
             EXPORT_DIRECTORY = props.getProperty("paths.exports", "exports");
             BACKUP_DIRECTORY = props.getProperty("paths.backups", "backups");
+            CAPACITY_CALENDAR_FILE = props.getProperty("paths.capacity_calendar", "data/capacity.cal");
+            PATIENT_INDEX_FILE = props.getProperty("paths.patient_index", "data/patients.idx");
+
+            // Backup
+            BACKUP_FULL_INTERVAL_DAYS = Integer.parseInt(props.getProperty("backup.full_interval_days", "7"));
+            BACKUP_RETENTION_DAYS = Integer.parseInt(props.getProperty("backup.retention_days", "7"));
+            BACKUP_ENCRYPT = Boolean.parseBoolean(props.getProperty("backup.encrypt", "true"));
+            BACKUP_KEY_FILE = props.getProperty("backup.key_file", "config/backup.key");
 
             Logger.log("Configuration loaded successfully from properties file");
 
@@ -99,6 +135,16 @@ public class Config {
         CLINIC_NAME = "DermaClinic";
         CLINIC_ADDRESS = "123 Skin Care St, Dermatology City";
         CLINIC_PHONE = "09170000000";
+        ARCHIVE_AFTER_DAYS = 90;
+        ARCHIVE_BATCH_SIZE = 500;
+        REFERENCE_CACHE_TTL_MINUTES = 10;
+        SLOT_HOLD_SECONDS = 300;
+        CAPACITY_LEASING = false;
+        LEASE_BLOCK_SIZE = 4;
+        LEASE_TTL_SECONDS = 30;
+        CHANGE_LOG_POLL_MILLIS = 1000;
+        CHANGE_LOG_IDLE_POLL_MILLIS = 8000;
+        CHANGE_LOG_RETENTION_MINUTES = 60;
 
         // Email
         SMTP_HOST = "smtp.gmail.com";
@@ -110,6 +156,14 @@ public class Config {
         LOG_DIRECTORY = "logs";
         EXPORT_DIRECTORY = "exports";
         BACKUP_DIRECTORY = "backups";
+        CAPACITY_CALENDAR_FILE = "data/capacity.cal";
+        PATIENT_INDEX_FILE = "data/patients.idx";
+
+        // Backup
+        BACKUP_FULL_INTERVAL_DAYS = 7;
+        BACKUP_RETENTION_DAYS = 7;
+        BACKUP_ENCRYPT = true;
+        BACKUP_KEY_FILE = "config/backup.key";
     }
 
     // ================= Create Config Template =================
@@ -130,6 +184,16 @@ public class Config {
         props.setProperty("clinic.name", "DermaClinic");
         props.setProperty("clinic.address", "123 Skin Care St, Dermatology City");
         props.setProperty("clinic.phone", "09170000000");
+        props.setProperty("app.archive_after_days", "90");
+        props.setProperty("app.archive_batch_size", "500");
+        props.setProperty("app.reference_cache_ttl_minutes", "10");
+        props.setProperty("app.slot_hold_seconds", "300");
+        props.setProperty("app.capacity_leasing", "false");
+        props.setProperty("app.lease_block_size", "4");
+        props.setProperty("app.lease_ttl_seconds", "30");
+        props.setProperty("app.change_log_poll_millis", "1000");
+        props.setProperty("app.change_log_idle_poll_millis", "8000");
+        props.setProperty("app.change_log_retention_minutes", "60");
 
         // Email
         props.setProperty("email.smtp.host", "smtp.gmail.com");
@@ -141,6 +205,14 @@ public class Config {
         props.setProperty("paths.logs", "logs");
         props.setProperty("paths.exports", "exports");
         props.setProperty("paths.backups", "backups");
+        props.setProperty("paths.capacity_calendar", "data/capacity.cal");
+        props.setProperty("paths.patient_index", "data/patients.idx");
+
+        // Backup
+        props.setProperty("backup.full_interval_days", "7");
+        props.setProperty("backup.retention_days", "7");
+        props.setProperty("backup.encrypt", "true");
+        props.setProperty("backup.key_file", "config/backup.key");
 
         try {
             Files.createDirectories(Paths.get("config"));
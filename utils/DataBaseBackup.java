@@ -5,9 +5,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.time.LocalDateTime;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -17,56 +15,57 @@ import db.DataBaseConnection;
 public class DataBaseBackup {
     
     /**
-     * Backup database to SQL file
+     * Backup database as a full snapshot or an incremental delta of the current chain
      */
     public static boolean backupDatabase() {
-        String backupDir = Config.BACKUP_DIRECTORY;
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String backupFile = backupDir + "/backup_" + timestamp + ".sql";
-        
+        IncrementalBackupEngine engine = new IncrementalBackupEngine(Paths.get(Config.BACKUP_DIRECTORY));
+        if (!engine.runBackup()) {
+            return false;
+        }
+
+        engine.cleanupOldChains(Config.BACKUP_RETENTION_DAYS);
+        cleanupOldBackups(Config.BACKUP_DIRECTORY);
+        return true;
+    }
+    
+    /**
+     * Verify checksums of the current backup chain without restoring it
+     */
+    public static boolean verifyLatestBackup() {
+        IncrementalBackupEngine engine = new IncrementalBackupEngine(Paths.get(Config.BACKUP_DIRECTORY));
         try {
-            // Create backup directory if it doesn't exist
-            Files.createDirectories(Paths.get(backupDir));
-            
-            // Execute mysqldump command
-            ProcessBuilder processBuilder = new ProcessBuilder(
-                "mysqldump",
-                "--host=localhost",
-                "--port=3306",
-                "--user=" + Config.DB_USER,
-                "--password=" + Config.DB_PASSWORD,
-                "--databases",
-                Config.DB_NAME,
-                "--result-file=" + backupFile,
-                "--skip-comments",
-                "--skip-dump-date",
-                "--complete-insert",
-                "--extended-insert"
-            );
-            
-            Process process = processBuilder.start();
-            int exitCode = process.waitFor();
-            
-            if (exitCode == 0) {
-                Logger.log("Database backup created: " + backupFile);
-                
-                // Clean up old backups (keep only last 7 days)
-                cleanupOldBackups(backupDir);
-                
-                return true;
-            } else {
-                Logger.log("Database backup failed with exit code: " + exitCode, "ERROR");
+            BackupManifest manifest = engine.findCurrentChain();
+            if (manifest == null) {
+                Logger.log("No backup chain found to verify");
                 return false;
             }
-            
-        } catch (IOException | InterruptedException e) {
-            Logger.logError("Failed to backup database", e);
+            return engine.verifyChain(manifest);
+        } catch (IOException e) {
+            Logger.logError("Failed to read backup manifest", e);
+            return false;
+        }
+    }
+    
+    /**
+     * Restore the current backup chain into the configured database
+     */
+    public static boolean restoreLatestBackup() {
+        IncrementalBackupEngine engine = new IncrementalBackupEngine(Paths.get(Config.BACKUP_DIRECTORY));
+        try {
+            BackupManifest manifest = engine.findCurrentChain();
+            if (manifest == null) {
+                Logger.log("No backup chain found to restore");
+                return false;
+            }
+            return engine.verifyChain(manifest) && new DatabaseRestore().restoreChain(manifest);
+        } catch (IOException e) {
+            Logger.logError("Failed to read backup manifest", e);
             return false;
         }
     }
     
     /**
-     * Clean up old backup files
+     * Clean up old mysqldump files left by earlier versions
      */
     private static void cleanupOldBackups(String backupDir) {
         File directory = new File(backupDir);
@@ -110,7 +109,7 @@ public class DataBaseBackup {
                     a.is_for_another_person,
                     a.other_person_name,
                     a.created_at
-                FROM appointments a
+                FROM (SELECT * FROM appointments UNION ALL SELECT * FROM appointments_archive) a
                 LEFT JOIN services s ON a.service_id = s.service_id
                 LEFT JOIN doctors d ON a.doctor_id = d.doctor_id
                 WHERE a.appointment_date BETWEEN ? AND ?
@@ -154,6 +153,13 @@ public class DataBaseBackup {
         }
     }
     
+    /**
+     * Export appointments, patients and doctors as FHIR NDJSON bulk data
+     */
+    public static boolean exportFhirBulkData() {
+        return FhirBulkExporter.exportAll();
+    }
+    
     /**
      * Generate monthly report
      */
@@ -173,7 +179,7 @@ public class DataBaseBackup {
                     SUM(CASE WHEN a.status = 'CANCELLED' THEN 1 ELSE 0 END) as cancelled,
                     SUM(s.price) as total_revenue,
                     GROUP_CONCAT(DISTINCT d.name) as doctors
-                FROM appointments a
+                FROM (SELECT * FROM appointments UNION ALL SELECT * FROM appointments_archive) a
                 LEFT JOIN services s ON a.service_id = s.service_id
                 LEFT JOIN doctors d ON a.doctor_id = d.doctor_id
                 WHERE YEAR(a.appointment_date) = ? 
@@ -0,0 +1,426 @@
+package utils;
+
+import db.DataBaseConnection;
+import db.SchemaMigrations;
+
+import javax.crypto.SecretKey;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Restores a backup chain written by {@link IncrementalBackupEngine}.
+ *
+ * The base snapshot replaces each table's contents, then every incremental is
+ * upserted in chain order. Rows are loaded by a pool of workers with their own
+ * connections using multi-row INSERTs, so several tables (and several batches of
+ * one table) load at once. Non-unique secondary indexes are dropped before the
+ * base load and rebuilt once at the end. Block checksums are verified as the
+ * files are read; a corrupt block aborts the restore.
+ *
+ * Usage: java utils.DatabaseRestore [chainDirectory] [--verify-only]
+ */
+public class DatabaseRestore {
+
+    private static final int BATCH_ROWS = 500;
+    private static final int MAX_PLACEHOLDERS = 65535;
+
+    private final int threads;
+    private final ConcurrentLinkedQueue<Connection> workerConnections = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Connection> workerConnection = new ThreadLocal<>();
+    private final AtomicLong rowsLoaded = new AtomicLong();
+
+    public DatabaseRestore() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public DatabaseRestore(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Restore every file of a chain, base first
+     */
+    public boolean restoreChain(BackupManifest manifest) {
+        long start = System.currentTimeMillis();
+        Map<String, Map<String, String>> deferredIndexes = new LinkedHashMap<>();
+        boolean indexesRebuilt = false;
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "restore-loader");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            SecretKey key = Files.exists(Paths.get(Config.BACKUP_KEY_FILE)) ? BackupFormat.loadKey(false) : null;
+            boolean base = true;
+            for (BackupManifest.Entry entry : manifest.getEntries()) {
+                Path file = manifest.getChainDir().resolve(entry.getFile());
+                restoreFile(file, key, base, pool, deferredIndexes);
+                Logger.log("Restored backup file: " + file);
+                base = false;
+            }
+            rebuildIndexes(pool, deferredIndexes);
+            indexesRebuilt = true;
+            reconcileArchivedAppointments();
+
+            Logger.log("Database restored from " + manifest.getChainDir().getFileName() + ": "
+                    + rowsLoaded.get() + " rows in " + (System.currentTimeMillis() - start) + " ms");
+            return true;
+
+        } catch (IOException | SQLException e) {
+            Logger.logError("Failed to restore database", e);
+            return false;
+        } finally {
+            pool.shutdownNow();
+            Connection conn;
+            while ((conn = workerConnections.poll()) != null) {
+                try {
+                    conn.close();
+                } catch (SQLException ignored) {
+                }
+            }
+            if (!indexesRebuilt) {
+                // A failed restore must not leave the live tables without their indexes
+                restoreDroppedIndexes(deferredIndexes);
+            }
+        }
+    }
+
+    private void restoreFile(Path file, SecretKey key, boolean base, ExecutorService pool,
+                             Map<String, Map<String, String>> deferredIndexes) throws IOException, SQLException {
+
+        // Bound the rows held in memory to a couple of batches per worker
+        Semaphore permits = new Semaphore(threads * 2);
+        List<Future<?>> pending = new ArrayList<>();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new BackupBlockInputStream(Files.newInputStream(file), key), 64 * 1024))) {
+
+            BackupFormat.readHeader(in);
+            byte marker;
+            while ((marker = in.readByte()) != BackupFormat.END) {
+                if (marker != BackupFormat.TABLE) {
+                    throw new IOException("Unexpected record in " + file + ": " + marker);
+                }
+
+                String table = BackupFormat.readString(in);
+                String[] columns = BackupFormat.readStrings(in);
+                String[] keys = BackupFormat.readStrings(in);
+                if (base) {
+                    prepareTable(table, deferredIndexes);
+                }
+
+                int rowsPerStatement = Math.max(1, Math.min(BATCH_ROWS, MAX_PLACEHOLDERS / Math.max(1, columns.length)));
+                List<String[]> batch = new ArrayList<>(rowsPerStatement);
+                while ((marker = in.readByte()) == BackupFormat.ROW) {
+                    String[] row = new String[columns.length];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = BackupFormat.readString(in);
+                    }
+                    batch.add(row);
+                    if (batch.size() == rowsPerStatement) {
+                        pending.add(submitBatch(pool, permits, table, columns, keys, batch, !base));
+                        batch = new ArrayList<>(rowsPerStatement);
+                    }
+                }
+                if (marker != BackupFormat.END_TABLE) {
+                    throw new IOException("Unexpected record in " + file + ": " + marker);
+                }
+                if (!batch.isEmpty()) {
+                    pending.add(submitBatch(pool, permits, table, columns, keys, batch, !base));
+                }
+            }
+        } finally {
+            // Incrementals must not start until every batch of this file is committed
+            awaitAll(pending);
+        }
+    }
+
+    private Future<?> submitBatch(ExecutorService pool, Semaphore permits, String table, String[] columns,
+                                  String[] keys, List<String[]> rows, boolean upsert) throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Restore interrupted", e);
+        }
+        return pool.submit(() -> {
+            try {
+                insertBatch(table, columns, keys, rows, upsert);
+                return null;
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    private void insertBatch(String table, String[] columns, String[] keys, List<String[]> rows, boolean upsert)
+            throws SQLException {
+
+        StringBuilder sql = new StringBuilder("INSERT INTO `").append(table).append("` (");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i > 0 ? ", " : "").append('`').append(columns[i]).append('`');
+        }
+        sql.append(") VALUES ");
+
+        StringBuilder tuple = new StringBuilder("(");
+        for (int i = 0; i < columns.length; i++) {
+            tuple.append(i > 0 ? ", ?" : "?");
+        }
+        tuple.append(')');
+        for (int r = 0; r < rows.size(); r++) {
+            sql.append(r > 0 ? ", " : "").append(tuple);
+        }
+
+        if (upsert) {
+            appendUpdateClause(sql, columns, keys);
+        }
+
+        Connection conn = workerConnection();
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int p = 1;
+            for (String[] row : rows) {
+                for (String value : row) {
+                    stmt.setString(p++, value);
+                }
+            }
+            stmt.executeUpdate();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+        rowsLoaded.addAndGet(rows.size());
+    }
+
+    private static void appendUpdateClause(StringBuilder sql, String[] columns, String[] keys) {
+        List<String> keyList = List.of(keys);
+        StringBuilder update = new StringBuilder();
+        for (String column : columns) {
+            if (!keyList.contains(column)) {
+                update.append(update.length() > 0 ? ", " : "")
+                        .append('`').append(column).append("` = VALUES(`").append(column).append("`)");
+            }
+        }
+        if (update.length() == 0) {
+            // Key-only table: make the duplicate a no-op
+            update.append('`').append(columns[0]).append("` = `").append(columns[0]).append('`');
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE ").append(update);
+    }
+
+    private Connection workerConnection() throws SQLException {
+        Connection conn = workerConnection.get();
+        if (conn == null) {
+            conn = DataBaseConnection.getConnection();
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET FOREIGN_KEY_CHECKS = 0");
+                stmt.execute("SET UNIQUE_CHECKS = 0");
+            }
+            conn.setAutoCommit(false);
+            workerConnection.set(conn);
+            workerConnections.add(conn);
+        }
+        return conn;
+    }
+
+    /**
+     * Empty the table and drop its non-unique secondary indexes until the load is done
+     */
+    private void prepareTable(String table, Map<String, Map<String, String>> deferredIndexes) throws SQLException {
+        try (Connection conn = DataBaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            stmt.execute("SET FOREIGN_KEY_CHECKS = 0");
+            try {
+                stmt.executeUpdate("TRUNCATE TABLE `" + table + "`");
+
+                for (Map.Entry<String, String> index : secondaryIndexes(conn, table).entrySet()) {
+                    try {
+                        stmt.executeUpdate("ALTER TABLE `" + table + "` DROP INDEX `" + index.getKey() + "`");
+                        // Recorded as soon as it is gone, so a failure from here on can put it back
+                        deferredIndexes.computeIfAbsent(table, t -> new LinkedHashMap<>())
+                                .put(index.getKey(), index.getValue());
+                    } catch (SQLException e) {
+                        // Indexes backing a foreign key cannot be dropped; load with them in place
+                        Logger.log("Keeping index " + index.getKey() + " on " + table + " during restore");
+                    }
+                }
+            } finally {
+                stmt.execute("SET FOREIGN_KEY_CHECKS = 1");
+            }
+        }
+    }
+
+    /**
+     * Non-unique BTREE indexes of a table, as index name to ADD INDEX clause
+     */
+    private static Map<String, String> secondaryIndexes(Connection conn, String table) throws SQLException {
+        Map<String, StringBuilder> columnsByIndex = new LinkedHashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SHOW INDEX FROM `" + table + "`")) {
+            while (rs.next()) {
+                String name = rs.getString("Key_name");
+                if ("PRIMARY".equals(name) || rs.getInt("Non_unique") == 0
+                        || !"BTREE".equalsIgnoreCase(rs.getString("Index_type"))) {
+                    continue;
+                }
+                String column = "`" + rs.getString("Column_name") + "`";
+                String subPart = rs.getString("Sub_part");
+                if (subPart != null) {
+                    column += "(" + subPart + ")";
+                }
+                StringBuilder cols = columnsByIndex.computeIfAbsent(name, k -> new StringBuilder());
+                cols.append(cols.length() > 0 ? ", " : "").append(column);
+            }
+        }
+
+        Map<String, String> definitions = new LinkedHashMap<>();
+        columnsByIndex.forEach((name, cols) -> definitions.put(name, "ADD INDEX `" + name + "` (" + cols + ")"));
+        return definitions;
+    }
+
+    /**
+     * Recreate deferred indexes, one ALTER per table, tables in parallel
+     */
+    private void rebuildIndexes(ExecutorService pool, Map<String, Map<String, String>> deferredIndexes) throws SQLException {
+        List<Future<?>> pending = new ArrayList<>();
+        for (Map.Entry<String, Map<String, String>> entry : deferredIndexes.entrySet()) {
+            String sql = "ALTER TABLE `" + entry.getKey() + "` " + String.join(", ", entry.getValue().values());
+            pending.add(pool.submit(() -> {
+                try (Connection conn = DataBaseConnection.getConnection();
+                     Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate(sql);
+                }
+                return null;
+            }));
+        }
+        try {
+            awaitAll(pending);
+        } catch (IOException e) {
+            throw new SQLException("Failed to rebuild indexes", e);
+        }
+    }
+
+    /**
+     * Put back whatever indexes a failed restore dropped, one at a time so one
+     * failure does not cost the rest. Indexes already back are skipped.
+     */
+    private static void restoreDroppedIndexes(Map<String, Map<String, String>> deferredIndexes) {
+        for (Map.Entry<String, Map<String, String>> entry : deferredIndexes.entrySet()) {
+            String table = entry.getKey();
+            try (Connection conn = DataBaseConnection.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                Map<String, String> present = secondaryIndexes(conn, table);
+                for (Map.Entry<String, String> index : entry.getValue().entrySet()) {
+                    if (present.containsKey(index.getKey())) {
+                        continue;
+                    }
+                    try {
+                        stmt.executeUpdate("ALTER TABLE `" + table + "` " + index.getValue());
+                        Logger.log("Restored index " + index.getKey() + " on " + table + " after failed restore");
+                    } catch (SQLException e) {
+                        Logger.logError("Could not rebuild index on " + table + "; recreate it with: ALTER TABLE `"
+                                + table + "` " + index.getValue(), e);
+                    }
+                }
+            } catch (SQLException e) {
+                Logger.logError("Could not rebuild indexes on " + table + "; recreate them with: ALTER TABLE `"
+                        + table + "` " + String.join(", ", entry.getValue().values()), e);
+            }
+        }
+    }
+
+    /**
+     * Archiving deletes rows from the hot table, which incrementals cannot express.
+     * Drop hot rows that the replayed chain also placed in the archive.
+     */
+    private static void reconcileArchivedAppointments() throws SQLException {
+        try (Connection conn = DataBaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            if (!SchemaMigrations.tableExists(conn, "appointments_archive")) {
+                return;
+            }
+            int removed = stmt.executeUpdate("DELETE a FROM appointments a"
+                    + " JOIN appointments_archive x ON x.appointment_id = a.appointment_id");
+            if (removed > 0) {
+                Logger.log("Removed " + removed + " archived appointments from the hot table after restore");
+            }
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> pending) throws IOException {
+        IOException failure = null;
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Restore interrupted", e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = new IOException("Failed to load backup batch", e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // ================= Command Line =================
+
+    public static void main(String[] args) {
+        boolean verifyOnly = false;
+        String chainDir = null;
+        for (String arg : args) {
+            if ("--verify-only".equals(arg)) {
+                verifyOnly = true;
+            } else {
+                chainDir = arg;
+            }
+        }
+
+        try {
+            IncrementalBackupEngine engine = new IncrementalBackupEngine(Paths.get(Config.BACKUP_DIRECTORY));
+            BackupManifest manifest = chainDir != null
+                    ? BackupManifest.load(Paths.get(chainDir))
+                    : engine.findCurrentChain();
+            if (manifest == null) {
+                System.err.println("No backup chain found in " + Config.BACKUP_DIRECTORY);
+                System.exit(1);
+            }
+
+            boolean ok = engine.verifyChain(manifest);
+            if (ok && !verifyOnly) {
+                ok = new DatabaseRestore().restoreChain(manifest);
+            }
+            System.out.println(ok ? "Done: " + manifest.getChainDir() : "Failed, see " + Config.LOG_DIRECTORY);
+            System.exit(ok ? 0 : 1);
+
+        } catch (IOException e) {
+            Logger.logError("Failed to read backup manifest", e);
+            System.exit(1);
+        }
+    }
+}
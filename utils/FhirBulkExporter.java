@@ -0,0 +1,337 @@
+package utils;
+
+import db.DataBaseConnection;
+import models.AppointmentStatus;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exports appointments, patients and doctors as FHIR R4 Bulk Data:
+ * one newline-delimited JSON file per resource type plus a manifest.json.
+ *
+ * Each resource type is written by its own task from a streaming cursor on its
+ * own connection. Rows are turned straight into JSON text in a reused buffer,
+ * so memory stays flat no matter how much history is exported.
+ */
+public class FhirBulkExporter {
+
+    private static final DateTimeFormatter DIR_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    // FHIR needs start and end together; used when the service has no duration
+    private static final int DEFAULT_DURATION_MINUTES = 30;
+
+    private final Path outputDir;
+    private final ZoneId zone;
+
+    public FhirBulkExporter(Path outputDir) {
+        this.outputDir = outputDir;
+        this.zone = ZoneId.systemDefault();
+    }
+
+    /**
+     * Export everything into a new timestamped folder under the export directory
+     */
+    public static boolean exportAll() {
+        Path dir = Paths.get(Config.EXPORT_DIRECTORY, "fhir", LocalDateTime.now().format(DIR_FORMAT));
+        return new FhirBulkExporter(dir).export();
+    }
+
+    public boolean export() {
+        OffsetDateTime transactionTime = OffsetDateTime.now(zone);
+        ExecutorService pool = Executors.newFixedThreadPool(3, r -> {
+            Thread t = new Thread(r, "fhir-export");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            Files.createDirectories(outputDir);
+
+            Map<String, Future<Long>> counts = new LinkedHashMap<>();
+            counts.put("Patient", pool.submit(() -> exportPatients(outputDir.resolve("Patient.ndjson"))));
+            counts.put("Practitioner", pool.submit(() -> exportPractitioners(outputDir.resolve("Practitioner.ndjson"))));
+            counts.put("Appointment", pool.submit(() -> exportAppointments(outputDir.resolve("Appointment.ndjson"))));
+
+            Map<String, Long> results = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<Long>> entry : counts.entrySet()) {
+                results.put(entry.getKey(), entry.getValue().get());
+            }
+            writeManifest(transactionTime, results);
+
+            Logger.log("FHIR bulk export written to " + outputDir + ": " + results);
+            return true;
+
+        } catch (IOException | ExecutionException e) {
+            Logger.logError("Failed to export FHIR bulk data", e instanceof ExecutionException ? e.getCause() : e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logger.logError("FHIR bulk export interrupted", e);
+            return false;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // ================= Resources =================
+
+    private long exportPatients(Path file) throws IOException, SQLException {
+        String sql = "SELECT user_id, full_name, email, phone, address, birth_date FROM users WHERE role = 'PATIENT'";
+        return stream(file, sql, (rs, json) -> {
+            json.append("{\"resourceType\":\"Patient\",\"id\":");
+            string(json, rs.getString("user_id"));
+            name(json, rs.getString("full_name"));
+            telecom(json, rs.getString("email"), rs.getString("phone"));
+
+            String address = rs.getString("address");
+            if (address != null && !address.isBlank()) {
+                json.append(",\"address\":[{\"text\":");
+                string(json, address);
+                json.append("}]");
+            }
+            Date birthDate = rs.getDate("birth_date");
+            if (birthDate != null) {
+                json.append(",\"birthDate\":\"").append(birthDate.toLocalDate()).append('"');
+            }
+            json.append('}');
+        });
+    }
+
+    private long exportPractitioners(Path file) throws IOException, SQLException {
+        String sql = "SELECT doctor_id, name, specialization, contact_email, contact_phone, is_active FROM doctors";
+        return stream(file, sql, (rs, json) -> {
+            json.append("{\"resourceType\":\"Practitioner\",\"id\":");
+            string(json, rs.getString("doctor_id"));
+            json.append(",\"active\":").append(rs.getBoolean("is_active"));
+            name(json, rs.getString("name"));
+            telecom(json, rs.getString("contact_email"), rs.getString("contact_phone"));
+
+            String specialization = rs.getString("specialization");
+            if (specialization != null && !specialization.isBlank()) {
+                json.append(",\"qualification\":[{\"code\":{\"text\":");
+                string(json, specialization);
+                json.append("}}]");
+            }
+            json.append('}');
+        });
+    }
+
+    private long exportAppointments(Path file) throws IOException, SQLException {
+        String sql = """
+            SELECT a.appointment_id, a.patient_id, a.patient_name, a.doctor_id, a.service_id,
+                   a.appointment_date, a.appointment_time, a.status, s.service_name, s.duration_minutes
+            FROM (SELECT * FROM appointments UNION ALL SELECT * FROM appointments_archive) a
+            LEFT JOIN services s ON a.service_id = s.service_id
+        """;
+        return stream(file, sql, (rs, json) -> {
+            json.append("{\"resourceType\":\"Appointment\",\"id\":");
+            string(json, rs.getString("appointment_id"));
+            json.append(",\"status\":\"").append(fhirStatus(rs.getString("status"))).append('"');
+
+            String serviceId = rs.getString("service_id");
+            if (serviceId != null) {
+                json.append(",\"serviceType\":[{\"coding\":[{\"code\":");
+                string(json, serviceId);
+                json.append("}]");
+                // No text when the service row is gone
+                String serviceName = rs.getString("service_name");
+                if (serviceName != null) {
+                    json.append(",\"text\":");
+                    string(json, serviceName);
+                }
+                json.append("}]");
+            }
+
+            Date date = rs.getDate("appointment_date");
+            Time time = rs.getTime("appointment_time");
+            if (date != null && time != null) {
+                OffsetDateTime start = LocalDateTime.of(date.toLocalDate(), time.toLocalTime()).atZone(zone).toOffsetDateTime();
+                int minutes = rs.getInt("duration_minutes");
+                json.append(",\"start\":\"").append(start).append('"');
+                json.append(",\"end\":\"")
+                        .append(start.plusMinutes(minutes > 0 ? minutes : DEFAULT_DURATION_MINUTES)).append('"');
+                if (minutes > 0) {
+                    json.append(",\"minutesDuration\":").append(minutes);
+                }
+            }
+
+            json.append(",\"participant\":[");
+            boolean first = participant(json, true, "Patient/", rs.getString("patient_id"), rs.getString("patient_name"));
+            participant(json, first, "Practitioner/", rs.getString("doctor_id"), null);
+            json.append("]}");
+        });
+    }
+
+    private static String fhirStatus(String stored) {
+        AppointmentStatus status = AppointmentStatus.parse(stored);
+        if (status == null) {
+            return "proposed";
+        }
+        switch (status) {
+            case APPROVED:
+                return "booked";
+            case COMPLETED:
+                return "fulfilled";
+            case CANCELLED:
+                return "cancelled";
+            case PENDING:
+            default:
+                return "pending";
+        }
+    }
+
+    // ================= Streaming =================
+
+    private interface RowWriter {
+        void write(ResultSet rs, StringBuilder json) throws SQLException;
+    }
+
+    private long stream(Path file, String sql, RowWriter rowWriter) throws IOException, SQLException {
+        long rows = 0;
+        StringBuilder json = new StringBuilder(512);
+
+        try (Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+
+            // Connector/J streams row by row instead of buffering the whole table
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    json.setLength(0);
+                    rowWriter.write(rs, json);
+                    json.append('\n');
+                    out.append(json);
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private void writeManifest(OffsetDateTime transactionTime, Map<String, Long> counts) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"transactionTime\":\"").append(transactionTime).append("\",");
+        json.append("\"request\":\"$export\",\"requiresAccessToken\":false,\"output\":[");
+        List<String> outputs = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            StringBuilder item = new StringBuilder("{\"type\":\"").append(entry.getKey()).append("\",\"url\":");
+            string(item, entry.getKey() + ".ndjson");
+            item.append(",\"count\":").append(entry.getValue()).append('}');
+            outputs.add(item.toString());
+        }
+        json.append(String.join(",", outputs)).append("],\"error\":[]}\n");
+        Files.write(outputDir.resolve("manifest.json"), json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // ================= JSON Helpers =================
+
+    private static void telecom(StringBuilder json, String email, String phone) {
+        boolean hasEmail = email != null && !email.isBlank();
+        boolean hasPhone = phone != null && !phone.isBlank();
+        if (!hasEmail && !hasPhone) {
+            return;
+        }
+        json.append(",\"telecom\":[");
+        if (hasEmail) {
+            json.append("{\"system\":\"email\",\"value\":");
+            string(json, email);
+            json.append('}');
+        }
+        if (hasPhone) {
+            json.append(hasEmail ? "," : "").append("{\"system\":\"phone\",\"value\":");
+            string(json, phone);
+            json.append('}');
+        }
+        json.append(']');
+    }
+
+    private static void name(StringBuilder json, String text) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        json.append(",\"name\":[{\"text\":");
+        string(json, text);
+        json.append("}]");
+    }
+
+    /**
+     * Append a participant unless there is nothing to say about it
+     *
+     * @return whether the list is still empty
+     */
+    private static boolean participant(StringBuilder json, boolean first, String type, String id, String display) {
+        if (id == null && display == null) {
+            return first;
+        }
+        json.append(first ? "" : ",").append("{\"actor\":{");
+        if (id != null) {
+            json.append("\"reference\":");
+            string(json, type + id);
+        }
+        if (display != null) {
+            json.append(id != null ? "," : "").append("\"display\":");
+            string(json, display);
+        }
+        json.append("},\"status\":\"accepted\"}");
+        return false;
+    }
+
+    /**
+     * A quoted, escaped JSON string. FHIR allows no nulls, so callers leave the
+     * element out instead of passing one.
+     */
+    private static void string(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
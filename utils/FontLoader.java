@@ -1,5 +1,7 @@
 package utils;
 
+import models.AppointmentStatus;
+
 import javax.swing.*;
 import java.awt.*;
 import java.io.IOException;
@@ -15,6 +17,9 @@ public class FontLoader {
     
     // Font cache to avoid reloading fonts
     private static final Map<String, Font> fontCache = new HashMap<>();
+
+    // Client property holding a component's font from before display scaling
+    private static final String BASE_FONT_KEY = "FontLoader.baseFont";
     
     // Font keys for different use cases
     public static final String FONT_PRIMARY = "primary";
@@ -265,21 +270,29 @@ public class FontLoader {
     }
     
     /**
-     * Apply font scaling to all components in a container recursively
+     * Apply font scaling to all components in a container recursively.
+     * Each component is scaled from the font it had on the first call, so calling
+     * this again (e.g. after adding components) does not compound the scale.
      */
     public static void applyFontScaling(Container container) {
+        applyFontScaling(container, getDisplayScaleFactor(), new HashMap<>());
+    }
+
+    private static void applyFontScaling(Container container, float scaleFactor, Map<Font, Font> scaled) {
         for (Component component : container.getComponents()) {
             if (component instanceof JComponent) {
-                Font currentFont = component.getFont();
-                if (currentFont != null) {
-                    float scaleFactor = getDisplayScaleFactor();
-                    Font scaledFont = currentFont.deriveFont(currentFont.getSize2D() * scaleFactor);
-                    component.setFont(scaledFont);
+                JComponent jc = (JComponent) component;
+                Object remembered = jc.getClientProperty(BASE_FONT_KEY);
+                Font baseFont = remembered instanceof Font ? (Font) remembered : jc.getFont();
+                if (baseFont != null) {
+                    jc.putClientProperty(BASE_FONT_KEY, baseFont);
+                    jc.setFont(scaled.computeIfAbsent(baseFont,
+                            f -> scaleFactor == 1.0f ? f : f.deriveFont(f.getSize2D() * scaleFactor)));
                 }
             }
             
             if (component instanceof Container) {
-                applyFontScaling((Container) component);
+                applyFontScaling((Container) component, scaleFactor, scaled);
             }
         }
     }
@@ -375,19 +388,19 @@ public class FontLoader {
     /**
      * Get a font for appointment status display with appropriate color
      */
-    public static Font getStatusFont(String status) {
+    public static Font getStatusFont(AppointmentStatus status) {
         int style = WEIGHT_BOLD;
         int size = SIZE_SMALL;
         
-        switch (status.toUpperCase()) {
-            case "APPROVED":
-            case "COMPLETED":
+        switch (status) {
+            case APPROVED:
+            case COMPLETED:
                 style = WEIGHT_BOLD;
                 break;
-            case "PENDING":
+            case PENDING:
                 style = Font.ITALIC;
                 break;
-            case "CANCELLED":
+            case CANCELLED:
                 style = WEIGHT_REGULAR;
                 break;
         }
@@ -398,15 +411,18 @@ public class FontLoader {
     /**
      * Get appropriate color for status text
      */
-    public static Color getStatusColor(String status) {
-        switch (status.toUpperCase()) {
-            case "APPROVED":
+    public static Color getStatusColor(AppointmentStatus status) {
+        if (status == null) {
+            return ColorScheme.TEXT_MEDIUM;
+        }
+        switch (status) {
+            case APPROVED:
                 return ColorScheme.APPROVED;
-            case "PENDING":
+            case PENDING:
                 return ColorScheme.PENDING;
-            case "CANCELLED":
+            case CANCELLED:
                 return ColorScheme.CANCELLED;
-            case "COMPLETED":
+            case COMPLETED:
                 return ColorScheme.COMPLETED;
             default:
                 return ColorScheme.TEXT_MEDIUM;
@@ -0,0 +1,127 @@
+package utils;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Font sizes for a responsive panel, switched per width breakpoint.
+ *
+ * Each registered component keeps the font it was built with as its base.
+ * The scaled font for a base and breakpoint is derived once and shared, and
+ * fonts are only swapped when a resize crosses into another breakpoint, so
+ * resizing within one costs nothing and the scale never compounds.
+ */
+public class ResponsiveTypography {
+
+    public enum Breakpoint {
+        XL(1200, 1.0f),
+        LG(900, 0.95f),
+        MD(768, 0.9f),
+        SM(480, 0.85f),
+        /** Narrower than SM */
+        XS(0, 0.8f);
+
+        private final int minWidth;
+        private final float scale;
+
+        Breakpoint(int minWidth, float scale) {
+            this.minWidth = minWidth;
+            this.scale = scale;
+        }
+
+        public int getMinWidth() {
+            return minWidth;
+        }
+
+        public float getScale() {
+            return scale;
+        }
+
+        /**
+         * The breakpoint a width falls in; a width must exceed a threshold to reach it
+         */
+        public static Breakpoint forWidth(int width) {
+            for (Breakpoint breakpoint : values()) {
+                if (width > breakpoint.minWidth) {
+                    return breakpoint;
+                }
+            }
+            return XS;
+        }
+    }
+
+    // Base font -> scaled font per breakpoint ordinal, shared by every panel
+    private static final Map<Font, Font[]> SCALED = new ConcurrentHashMap<>();
+
+    private final List<JComponent> components = new ArrayList<>();
+    private final List<Font> baseFonts = new ArrayList<>();
+    private Breakpoint current;
+
+    /**
+     * The font of a base at a breakpoint, derived on first use
+     */
+    public static Font fontFor(Font base, Breakpoint breakpoint) {
+        Font[] set = SCALED.computeIfAbsent(base, f -> new Font[Breakpoint.values().length]);
+        Font font = set[breakpoint.ordinal()];
+        if (font == null) {
+            font = breakpoint.scale == 1.0f ? base : base.deriveFont(base.getSize2D() * breakpoint.scale);
+            // Racing writers derive equal fonts; either one may stay
+            set[breakpoint.ordinal()] = font;
+        }
+        return font;
+    }
+
+    /**
+     * Scale a component's current font from now on
+     */
+    public void register(JComponent component) {
+        Font base = component.getFont();
+        if (base == null) {
+            return;
+        }
+        components.add(component);
+        baseFonts.add(base);
+        if (current != null) {
+            component.setFont(fontFor(base, current));
+        }
+    }
+
+    /**
+     * Register every label, button and text area below a container. Walks the
+     * tree once, at build time; later resizes only use the registered list.
+     */
+    public void registerTree(Container container) {
+        for (Component comp : container.getComponents()) {
+            if (comp instanceof JLabel || comp instanceof JButton || comp instanceof JTextArea) {
+                register((JComponent) comp);
+            } else if (comp instanceof Container) {
+                registerTree((Container) comp);
+            }
+        }
+    }
+
+    /**
+     * Swap in the font set for a width's breakpoint
+     *
+     * @return whether the breakpoint changed
+     */
+    public boolean apply(int width) {
+        Breakpoint breakpoint = Breakpoint.forWidth(width);
+        if (breakpoint == current) {
+            return false;
+        }
+        current = breakpoint;
+        for (int i = 0; i < components.size(); i++) {
+            components.get(i).setFont(fontFor(baseFonts.get(i), breakpoint));
+        }
+        return true;
+    }
+
+    public Breakpoint getBreakpoint() {
+        return current;
+    }
+}
@@ -0,0 +1,138 @@
+package utils;
+
+import java.awt.*;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Background textures as small seamless tiles, each rendered once and shared.
+ *
+ * Panels fill their background with the tile as a TexturePaint, so resizing a
+ * window paints more copies of the same image rather than rendering a new one
+ * the size of the window.
+ */
+public final class TextureCache {
+
+    public enum Texture {
+        /** Pores and faint fine lines, behind the welcome screen */
+        SKIN,
+        /** Pores only, behind the sign-up form */
+        GRAIN
+    }
+
+    private static final int TILE_SIZE = 256;
+
+    private static final Map<Texture, TexturePaint> PAINTS = new ConcurrentHashMap<>();
+
+    private TextureCache() {
+    }
+
+    /**
+     * Render every tile on a background thread so the first paint finds them ready
+     */
+    public static void prewarm() {
+        Thread t = new Thread(() -> {
+            for (Texture texture : Texture.values()) {
+                paintFor(texture);
+            }
+        }, "texture-prewarm");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public static TexturePaint paintFor(Texture texture) {
+        return PAINTS.computeIfAbsent(texture,
+                t -> new TexturePaint(render(t), new Rectangle(0, 0, TILE_SIZE, TILE_SIZE)));
+    }
+
+    /**
+     * Fill the damaged part of a component of the given size with a texture at some opacity
+     */
+    public static void paint(Graphics g, Texture texture, int width, int height, float alpha) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        Rectangle area = new Rectangle(0, 0, width, height);
+        Rectangle clip = g.getClipBounds();
+        if (clip != null) {
+            area = area.intersection(clip);
+        }
+
+        Graphics2D g2d = (Graphics2D) g.create();
+        try {
+            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+            g2d.setPaint(paintFor(texture));
+            g2d.fill(area);
+        } finally {
+            g2d.dispose();
+        }
+    }
+
+    // ================= Rendering =================
+
+    private static BufferedImage render(Texture texture) {
+        BufferedImage tile = createImage(TILE_SIZE, TILE_SIZE);
+        Graphics2D g2d = tile.createGraphics();
+        // Fixed seed: the same tile every run
+        Random random = new Random(texture.ordinal() + 1L);
+
+        g2d.setColor(new Color(255, 250, 245, 10));
+        g2d.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+
+        // Same pore density as the old full-window textures
+        g2d.setColor(new Color(200, 180, 160, 3));
+        for (int i = 0; i < TILE_SIZE * TILE_SIZE / 200; i++) {
+            int x = random.nextInt(TILE_SIZE);
+            int y = random.nextInt(TILE_SIZE);
+            int size = random.nextInt(2) + 1;
+            for (int dx = 0; dx <= (x + size > TILE_SIZE ? 1 : 0); dx++) {
+                for (int dy = 0; dy <= (y + size > TILE_SIZE ? 1 : 0); dy++) {
+                    // A pore over the edge reappears on the opposite side
+                    g2d.fillOval(x - dx * TILE_SIZE, y - dy * TILE_SIZE, size, size);
+                }
+            }
+        }
+
+        if (texture == Texture.SKIN) {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setColor(new Color(190, 170, 150, 2));
+            g2d.setStroke(new BasicStroke(0.5f));
+            for (int i = 0; i < 4; i++) {
+                int x1 = random.nextInt(TILE_SIZE);
+                int y1 = random.nextInt(TILE_SIZE);
+                int length = random.nextInt(50) + 10;
+                double angle = Math.toRadians(random.nextInt(180));
+                Line2D line = new Line2D.Double(x1, y1,
+                        x1 + length * Math.cos(angle), y1 + length * Math.sin(angle));
+                // Draw every wrapped copy; the clip keeps the ones that land
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        Graphics2D copy = (Graphics2D) g2d.create();
+                        copy.translate(dx * TILE_SIZE, dy * TILE_SIZE);
+                        copy.draw(line);
+                        copy.dispose();
+                    }
+                }
+            }
+        }
+
+        g2d.dispose();
+        return tile;
+    }
+
+    /**
+     * An image in the screen's native pixel layout where there is a screen.
+     * TexturePaint needs a BufferedImage, so a VolatileImage is not an option.
+     */
+    private static BufferedImage createImage(int width, int height) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration();
+            return config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+}